@@ -0,0 +1,137 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.*;
+
+/**
+ * The words and lines translated by the benchmarks for one language pair, generated from the bundled dictionaries
+ * (en-to-si.txt, en-to-ta.txt and si-to-ta.txt) with a fixed seed, so that every run translates the same input.
+ *
+ * Hits are words of the source language found in the dictionary used for the gender, i.e. names for a male or
+ * female and other words for an unknown gender. Misses are pairs of such words joined together that are not found
+ * in it, and hence are translated by the phonetic rules. Lines mix mostly hits with some misses and punctuation,
+ * as in a typical list of names and addresses.
+ *
+ * @author asankha
+ */
+final class Corpus {
+
+    static final String[] CODES = {"en", "si", "ta"};
+
+    private static final String RESOURCES = "/com/asankha/translit/resources/";
+    private static final String DELIMITERS = " ,\\[]#'\"()";
+    private static final String[] SEPARATORS = {" ", " ", " ", ", ", " (", ") ", " \"", "\" "};
+
+    final String[] hits;
+    final String[] misses;
+    final String[] lines;
+
+    /**
+     * @param src the source language - i.e. Transliterate.ENGLISH, SINHALA or TAMIL
+     * @param dst the target language
+     * @param names true for the words of the names dictionary, false for the others
+     * @param size the number of each of the hits, misses and lines - a power of two
+     */
+    Corpus(int src, int dst, boolean names, int size) throws IOException {
+
+        List<String> words = readWords(src, dst, names);
+        Set<String> dictionary = new HashSet<String>(words);
+        Random random = new Random(src * 3 + dst);
+
+        hits = new String[size];
+        for (int i=0; i<size; i++) {
+            hits[i] = words.get(random.nextInt(words.size()));
+        }
+
+        misses = new String[size];
+        for (int i=0; i<size; ) {
+            String w = words.get(random.nextInt(words.size())) + words.get(random.nextInt(words.size()));
+            if (!dictionary.contains(w)) {
+                misses[i++] = w;
+            }
+        }
+
+        lines = new String[size];
+        for (int i=0; i<size; i++) {
+            StringBuilder sb = new StringBuilder();
+            int tokens = 3 + random.nextInt(6);
+            for (int j=0; j<tokens; j++) {
+                if (j > 0) {
+                    sb.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+                }
+                sb.append(random.nextInt(5) == 0 ? misses[random.nextInt(size)] : hits[random.nextInt(size)]);
+            }
+            lines[i] = sb.toString();
+        }
+    }
+
+    static int language(String code) {
+        for (int i=0; i<CODES.length; i++) {
+            if (CODES[i].equals(code)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown language : " + code);
+    }
+
+    /**
+     * @return the distinct words of the source language of the pair in its mapping file, that are translated as a
+     * single token
+     */
+    private static List<String> readWords(int src, int dst, boolean names) throws IOException {
+
+        String filename = CODES[Math.min(src, dst)] + "-to-" + CODES[Math.max(src, dst)] + ".txt";
+        int column = src < dst ? 0 : 1;
+        InputStream in = Corpus.class.getResourceAsStream(RESOURCES + filename);
+        if (in == null) {
+            throw new IOException("Cannot find " + filename + " on the classpath");
+        }
+
+        Set<String> words = new LinkedHashSet<String>();
+        BufferedReader br = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            String s;
+            while ((s = br.readLine()) != null) {
+                String[] p = s.toLowerCase().split(",");
+                if (p.length >= 4 && names == ("1".equals(p[2]) || "1".equals(p[3])) && isWord(p[column])) {
+                    words.add(p[column]);
+                }
+            }
+        } finally {
+            br.close();
+        }
+        return new ArrayList<String>(words);
+    }
+
+    private static boolean isWord(String s) {
+        if (s.length() < 2) {
+            return false;
+        }
+        for (int i=0; i<s.length(); i++) {
+            if (DELIMITERS.indexOf(s.charAt(i)) != -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit.benchmarks;
+
+import com.asankha.translit.Transliterate;
+import com.asankha.translit.Transliterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time taken before the first word is translated - i.e. the static initialization of Transliterate and
+ * the loading of the rules and dictionaries of one language pair, each time in a new class loader so that nothing is
+ * shared with an earlier invocation - and the time to load a new Transliterator in a warmed up JVM.
+ *
+ * @author asankha
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(3)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Param({"en-si", "en-ta", "si-en", "si-ta", "ta-en", "ta-si"})
+    public String pair;
+
+    private int src;
+    private int dst;
+    private URL[] classpath;
+
+    @Setup
+    public void setup() {
+        src = Corpus.language(pair.substring(0, 2));
+        dst = Corpus.language(pair.substring(3));
+        classpath = new URL[] {Transliterate.class.getProtectionDomain().getCodeSource().getLocation()};
+    }
+
+    @Benchmark
+    public Object firstTranslation() throws Exception {
+        URLClassLoader cl = new URLClassLoader(classpath, null);
+        try {
+            Class<?> c = Class.forName(Transliterate.class.getName(), true, cl);
+            return c.getMethod("translateWord", String.class, int.class, int.class, int.class).invoke(
+                null, "perera", src, dst, Transliterate.MALE);
+        } finally {
+            // release the jar files held open, so that each invocation's classes may be unloaded
+            cl.close();
+        }
+    }
+
+    @Benchmark
+    public Transliterator newInstance() throws Exception {
+        return Transliterator.newInstance(src, dst);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit.benchmarks;
+
+import com.asankha.translit.Transliterate;
+import com.asankha.translit.Transliterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of a warmed up transliterator for each language pair and gender, for words found in the
+ * dictionaries, words translated by the phonetic rules, and lines of several words.
+ *
+ * e.g.
+ * $java -jar modules/benchmarks/target/benchmarks.jar TranslateBenchmark -p pair=en-si -p gender=m
+ *
+ * @author asankha
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TranslateBenchmark {
+
+    private static final int CORPUS_SIZE = 4096;
+
+    @Param({"en-si", "en-ta", "si-en", "si-ta", "ta-en", "ta-si"})
+    public String pair;
+
+    @Param({"u", "m", "f"})
+    public String gender;
+
+    private Transliterator transliterator;
+    private int g;
+    private Corpus corpus;
+    private int next;
+    private final StringBuilder buffer = new StringBuilder();
+
+    @Setup
+    public void setup() throws IOException {
+        int src = Corpus.language(pair.substring(0, 2));
+        int dst = Corpus.language(pair.substring(3));
+        g = "m".equals(gender) ? Transliterate.MALE : "f".equals(gender) ? Transliterate.FEMALE : Transliterate.UNKNOWN;
+        transliterator = Transliterate.getTransliterator(src, dst);
+        corpus = new Corpus(src, dst, g != Transliterate.UNKNOWN, CORPUS_SIZE);
+    }
+
+    private int next() {
+        next = (next + 1) & (CORPUS_SIZE - 1);
+        return next;
+    }
+
+    @Benchmark
+    public String dictionaryHit() {
+        return transliterator.translateWord(corpus.hits[next()], g);
+    }
+
+    @Benchmark
+    public String phoneticFallback() {
+        return transliterator.translateWord(corpus.misses[next()], g);
+    }
+
+    @Benchmark
+    public String line() {
+        return transliterator.translateLine(corpus.lines[next()], g);
+    }
+
+    @Benchmark
+    public int lineIntoBuffer() {
+        buffer.setLength(0);
+        transliterator.translateLine(corpus.lines[next()], g, buffer);
+        return buffer.length();
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit.codegen;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Generates a Java class for each of the rules-*.txt and phonetic-*.txt files bundled with the engine, at build time.
+ *
+ * Each generated class holds the parsed rules as constants, and a decision tree of switch statements over the
+ * characters of the input that finds the matching rules, one small method per tree node so that the JIT may inline
+ * them. Hence nothing needs to be parsed or compiled when the engine starts up. A CRC32 of the source file is
+ * recorded in each class, so that the engine can fall back to reading the rules from the classpath if someone places
+ * updated rules files there.
+ *
+ * The rules are parsed exactly as Transliterate.loadLangToPhoneticFile() and loadPhoneticToLangFile() would
+ *
+ * Usage: java com.asankha.translit.codegen.RuleMatcherGenerator [resources directory] [output directory]
+ *
+ * @author asankha
+ */
+public class RuleMatcherGenerator {
+
+    private static final String PACKAGE = "com.asankha.translit";
+    private static final String[] LANGUAGES = {"en", "si", "ta"};
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length != 2) {
+            System.out.println("java " + RuleMatcherGenerator.class.getName() + " [resources directory] [output directory]");
+            System.exit(1);
+        }
+
+        File src = new File(args[0]);
+        File dst = new File(args[1], PACKAGE.replace('.', File.separatorChar));
+        if (!dst.isDirectory() && !dst.mkdirs()) {
+            throw new IOException("Cannot create output directory : " + dst);
+        }
+
+        for (String lang : LANGUAGES) {
+            String suffix = Character.toUpperCase(lang.charAt(0)) + lang.substring(1);
+            generate(new File(src, "rules-" + lang + ".txt"), new File(dst, "CompiledRules" + suffix + ".java"), true);
+            generate(new File(src, "phonetic-" + lang + ".txt"), new File(dst, "CompiledPhonetic" + suffix + ".java"), false);
+        }
+    }
+
+    private static void generate(File source, File target, boolean langToPhonetic) throws IOException {
+
+        String className = target.getName().substring(0, target.getName().length() - ".java".length());
+        String type = langToPhonetic ? "LangToPhonetic" : "PhoneticToLang";
+
+        List<String> regex = new ArrayList<String>();
+        List<String> values = new ArrayList<String>();
+
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(source), "UTF-8"));
+        String s;
+        while ((s = br.readLine()) != null) {
+            String[] p = s.split(",");
+            if (langToPhonetic) {
+                String rule = p[2].replaceAll("%", ".*");
+                regex.add(rule);
+                values.add(literal(rule) + ", " + integer(p[0]) + ", " + integer(p[3]) + ", "
+                    + literal(p[4].replaceAll("%", "")));
+            } else {
+                String rule = p[0].replaceAll("\\.", "\\\\.").replaceAll("%", ".*");
+                String lang = p[1].replaceAll("%", "");
+                regex.add(rule);
+                values.add(literal(rule) + ", " + ("(null)".equals(lang) ? "null" : literal(lang)) + ", " + integer(p[2]));
+            }
+        }
+        br.close();
+
+        // build the trie, keeping aside rules that are not simple literal prefixes
+        Node root = new Node();
+        List<Integer> irregular = new ArrayList<Integer>();
+        for (int i=0; i<regex.size(); i++) {
+            String rule = regex.get(i);
+            boolean open = rule.endsWith(".*");
+            String prefix = unescape(open ? rule.substring(0, rule.length() - 2) : rule);
+            if (prefix == null) {
+                irregular.add(i);
+            } else {
+                Node n = root;
+                for (int j=0; j<prefix.length(); j++) {
+                    Node c = n.children.get(prefix.charAt(j));
+                    if (c == null) {
+                        c = new Node();
+                        n.children.put(prefix.charAt(j), c);
+                    }
+                    n = c;
+                }
+                (open ? n.open : n.exact).add(i);
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("/*\n * Generated by ").append(RuleMatcherGenerator.class.getName()).append(" from ")
+            .append(source.getName()).append(" - do not edit\n */\n");
+        sb.append("package ").append(PACKAGE).append(";\n\n");
+        sb.append("final class ").append(className).append(" extends RuleSet<").append(type).append("> {\n\n");
+        sb.append("    static final long CHECKSUM = 0x").append(Long.toHexString(checksum(source))).append("L;\n\n");
+
+        sb.append("    ").append(className).append("() {\n");
+        sb.append("        super(new ").append(type).append("[] {\n");
+        for (int i=0; i<values.size(); i++) {
+            sb.append("            new ").append(type).append("(").append(values.get(i)).append(")")
+                .append(i < values.size() - 1 ? ",\n" : "\n");
+        }
+        sb.append("        });\n    }\n\n");
+
+        sb.append("    int match(CharSequence s, int from, int[] c) {\n");
+        sb.append("        int n = n0(s, from, s.length(), RuleTrie.lastTerminator(s, from), c, 0);\n");
+        if (!irregular.isEmpty()) {
+            sb.append("        String rest = s.subSequence(from, s.length()).toString();\n");
+            for (Integer i : irregular) {
+                sb.append("        if (rest.matches(").append(literal(regex.get(i))).append(")) {\n");
+                sb.append("            n = RuleTrie.insert(c, n, ").append(i).append(");\n");
+                sb.append("        }\n");
+            }
+        }
+        sb.append("        return n;\n    }\n");
+
+        List<Node> methods = new ArrayList<Node>();
+        methods.add(root);
+        for (int i=0; i<methods.size(); i++) {
+            emitMethod(sb, i, methods.get(i), methods);
+        }
+        sb.append("}\n");
+
+        Writer w = new OutputStreamWriter(new FileOutputStream(target), "UTF-8");
+        w.write(sb.toString());
+        w.close();
+    }
+
+    /**
+     * Emit the method for a trie node with children, queueing further methods for its children that have their own
+     * children, while the checks for leaf nodes are emitted in place
+     */
+    private static void emitMethod(StringBuilder sb, int id, Node node, List<Node> methods) {
+
+        sb.append("\n    private static int n").append(id)
+            .append("(CharSequence s, int p, int len, int last, int[] c, int n) {\n");
+        emitChecks(sb, node, "p", "        ");
+        sb.append("        if (p == len) {\n");
+        emitInserts(sb, node.exact, "            ");
+        sb.append("            return n;\n        }\n");
+
+        sb.append("        switch (s.charAt(p)) {\n");
+        for (Map.Entry<Character, Node> e : node.children.entrySet()) {
+            char ch = e.getKey();
+            Node child = e.getValue();
+            sb.append("            case 0x").append(Integer.toHexString(ch)).append(":");
+            if (ch >= 0x20 && ch < 0x7f && ch != '\\') {
+                sb.append(" // '").append(ch).append("'");
+            }
+            sb.append("\n");
+            if (child.children.isEmpty()) {
+                emitChecks(sb, child, "p + 1", "                ");
+                if (!child.exact.isEmpty()) {
+                    sb.append("                if (p + 1 == len) {\n");
+                    emitInserts(sb, child.exact, "                    ");
+                    sb.append("                }\n");
+                }
+                sb.append("                return n;\n");
+            } else {
+                sb.append("                return n").append(methods.size()).append("(s, p + 1, len, last, c, n);\n");
+                methods.add(child);
+            }
+        }
+        sb.append("        }\n");
+        sb.append("        return n;\n    }\n");
+    }
+
+    private static void emitChecks(StringBuilder sb, Node node, String pos, String indent) {
+        if (!node.open.isEmpty()) {
+            sb.append(indent).append("if (").append(pos).append(" > last) {\n");
+            emitInserts(sb, node.open, indent + "    ");
+            sb.append(indent).append("}\n");
+        }
+    }
+
+    private static void emitInserts(StringBuilder sb, List<Integer> rules, String indent) {
+        for (Integer r : rules) {
+            sb.append(indent).append("n = RuleTrie.insert(c, n, ").append(r).append(");\n");
+        }
+    }
+
+    private static String integer(String s) {
+        try {
+            return Integer.toString(Integer.parseInt(s));
+        } catch (NumberFormatException e) {
+            return "(Integer) null";
+        }
+    }
+
+    private static String literal(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i=0; i<s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else if (c == '\r') {
+                sb.append("\\r");
+            } else if (c < 0x20 || c >= 0x7f) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * @return the literal text matched by the given regex, or null if it contains anything other than literal
+     * characters and escaped '.'s - as per RuleTrie
+     */
+    private static String unescape(String regex) {
+        StringBuilder sb = new StringBuilder(regex.length());
+        for (int i=0; i<regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i+1 < regex.length() && regex.charAt(i+1) == '.') {
+                    sb.append('.');
+                    i++;
+                } else {
+                    return null;
+                }
+            } else if ("[](){}.*+?^$|".indexOf(c) != -1) {
+                return null;
+            } else {
+                sb.append(c);
+            }
+        }
+        String literal = sb.toString();
+        if (literal.length() != literal.codePointCount(0, literal.length())) {
+            return null;
+        }
+        return literal;
+    }
+
+    private static long checksum(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[8192];
+        int len;
+        while ((len = in.read(buf)) != -1) {
+            crc.update(buf, 0, len);
+        }
+        in.close();
+        return crc.getValue();
+    }
+
+    private static class Node {
+        private final SortedMap<Character, Node> children = new TreeMap<Character, Node>();
+        private final List<Integer> open = new ArrayList<Integer>();
+        private final List<Integer> exact = new ArrayList<Integer>();
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The dictionaries of both directions of one mapping file, in a compact form for applications that run many
+ * instances of the engine with little heap each.
+ *
+ * Each distinct string of the four dictionaries (names and other words, in each direction) is held once in a single
+ * byte array, rather than as a String per map entry - a word is typically the key of one dictionary and the value of
+ * the reverse one. A string is encoded as a byte selecting a 128 character block (the Sinhala block U+0D80, the
+ * Tamil block U+0B80, or else U+0080 for Latin-1), followed by a byte per character: 0x01-0x7F for ASCII, 0x80-0xFF
+ * for a character of the block, or 0x00 followed by the two bytes of any other character (e.g. the zero width joiner
+ * of Sinhala conjuncts). The strings are referenced by their index, and each dictionary is an open addressing hash
+ * table of these indexes for its keys and values.
+ *
+ * @author asankha
+ */
+final class CompactDictionaries {
+
+    /** The first character of the block selected by the first byte of a string */
+    private static final char[] BLOCKS = {'\u0080', '\u0D80', '\u0B80'};
+
+    private final byte[] data;
+    /** The offset of each string in data, with one more for the end of the last */
+    private final int[] offsets;
+    private final Table namesOne;
+    private final Table otherOne;
+    private final Table namesTwo;
+    private final Table otherTwo;
+
+    /**
+     * @param namesOne the names from the first language of the mapping file to the second
+     * @param otherOne the other words from the first language to the second
+     * @param namesTwo the names from the second language to the first
+     * @param otherTwo the other words from the second language to the first
+     */
+    CompactDictionaries(Map<String, String> namesOne, Map<String, String> otherOne,
+        Map<String, String> namesTwo, Map<String, String> otherTwo) {
+
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int[] starts = new int[2 * (namesOne.size() + otherOne.size() + namesTwo.size() + otherTwo.size()) + 1];
+
+        this.namesOne = new Table(namesOne, ids, bytes, starts);
+        this.otherOne = new Table(otherOne, ids, bytes, starts);
+        this.namesTwo = new Table(namesTwo, ids, bytes, starts);
+        this.otherTwo = new Table(otherTwo, ids, bytes, starts);
+
+        data = bytes.toByteArray();
+        offsets = new int[ids.size() + 1];
+        System.arraycopy(starts, 0, offsets, 0, ids.size());
+        offsets[ids.size()] = data.length;
+    }
+
+    /**
+     * @param forward true for the direction from the first language of the mapping file to the second
+     * @param names true for the dictionary of person names, or false for that of other words
+     * @return the dictionary
+     */
+    Dictionary getDictionary(boolean forward, boolean names) {
+        return forward ? (names ? namesOne : otherOne) : (names ? namesTwo : otherTwo);
+    }
+
+    /**
+     * @return the number of distinct strings held
+     */
+    int strings() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @return the approximate heap used by the strings and tables, in bytes
+     */
+    long heapSize() {
+        return data.length + 4L * offsets.length +
+            namesOne.heapSize() + otherOne.heapSize() + namesTwo.heapSize() + otherTwo.heapSize();
+    }
+
+    /**
+     * @return the index of the string, adding it if it has not been seen before
+     */
+    private static int intern(String s, Map<String, Integer> ids, ByteArrayOutputStream bytes, int[] starts) {
+        Integer id = ids.get(s);
+        if (id != null) {
+            return id;
+        }
+        id = ids.size();
+        ids.put(s, id);
+        starts[id] = bytes.size();
+
+        int block = 0;
+        for (int i=0; i<s.length() && block == 0; i++) {
+            for (int b=1; b<BLOCKS.length; b++) {
+                if (s.charAt(i) >= BLOCKS[b] && s.charAt(i) < BLOCKS[b] + 0x80) {
+                    block = b;
+                }
+            }
+        }
+        bytes.write(block);
+        for (int i=0; i<s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != 0 && c < 0x80) {
+                bytes.write(c);
+            } else if (c >= BLOCKS[block] && c < BLOCKS[block] + 0x80) {
+                bytes.write(0x80 + c - BLOCKS[block]);
+            } else {
+                bytes.write(0);
+                bytes.write(c >>> 8);
+                bytes.write(c);
+            }
+        }
+        return id;
+    }
+
+    private boolean matches(int id, CharSequence word) {
+        int pos = offsets[id];
+        int end = offsets[id + 1];
+        char block = BLOCKS[data[pos++]];
+        for (int i=0; i<word.length(); i++) {
+            if (pos == end) {
+                return false;
+            }
+            int b = data[pos++] & 0xff;
+            char c;
+            if (b >= 0x80) {
+                c = (char) (block + b - 0x80);
+            } else if (b != 0) {
+                c = (char) b;
+            } else {
+                c = (char) (((data[pos] & 0xff) << 8) | (data[pos + 1] & 0xff));
+                pos += 2;
+            }
+            if (c != word.charAt(i)) {
+                return false;
+            }
+        }
+        return pos == end;
+    }
+
+    private String decode(int id) {
+        int pos = offsets[id];
+        int end = offsets[id + 1];
+        char block = BLOCKS[data[pos++]];
+        StringBuilder sb = new StringBuilder(end - pos);
+        while (pos < end) {
+            int b = data[pos++] & 0xff;
+            if (b >= 0x80) {
+                sb.append((char) (block + b - 0x80));
+            } else if (b != 0) {
+                sb.append((char) b);
+            } else {
+                sb.append((char) (((data[pos] & 0xff) << 8) | (data[pos + 1] & 0xff)));
+                pos += 2;
+            }
+        }
+        return sb.toString();
+    }
+
+    /** The same hash as String.hashCode(), spread as by MapDictionary */
+    private static int hash(CharSequence s) {
+        int h = 0;
+        if (s instanceof String) {
+            h = s.hashCode();
+        } else {
+            for (int i=0; i<s.length(); i++) {
+                h = 31 * h + s.charAt(i);
+            }
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * One dictionary, as a hash table of the indexes of its keys and values, where -1 marks an empty slot
+     */
+    private final class Table implements Dictionary {
+
+        private final int[] keys;
+        private final int[] values;
+        private final int mask;
+        private final int size;
+        /** The indexes of the keys containing a space */
+        private final int[] phrases;
+
+        private Table(Map<String, String> map, Map<String, Integer> ids, ByteArrayOutputStream bytes, int[] starts) {
+            int capacity = 4;
+            while (capacity < map.size() * 2) {
+                capacity <<= 1;
+            }
+            keys = new int[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            size = map.size();
+            Arrays.fill(keys, -1);
+
+            int[] p = new int[map.size()];
+            int phraseCount = 0;
+            for (Map.Entry<String, String> e : map.entrySet()) {
+                int i = hash(e.getKey()) & mask;
+                while (keys[i] != -1) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = intern(e.getKey(), ids, bytes, starts);
+                values[i] = intern(e.getValue(), ids, bytes, starts);
+                if (e.getKey().indexOf(' ') != -1) {
+                    p[phraseCount++] = keys[i];
+                }
+            }
+            phrases = new int[phraseCount];
+            System.arraycopy(p, 0, phrases, 0, phraseCount);
+        }
+
+        public String get(CharSequence word) {
+            for (int i = hash(word) & mask; keys[i] != -1; i = (i + 1) & mask) {
+                if (matches(keys[i], word)) {
+                    return decode(values[i]);
+                }
+            }
+            return null;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public String[] keys() {
+            String[] result = new String[size];
+            int count = 0;
+            for (int k : keys) {
+                if (k != -1) {
+                    result[count++] = decode(k);
+                }
+            }
+            return result;
+        }
+
+        public String[] phrases() {
+            String[] result = new String[phrases.length];
+            for (int i=0; i<phrases.length; i++) {
+                result[i] = decode(phrases[i]);
+            }
+            return result;
+        }
+
+        private long heapSize() {
+            return 8L * keys.length + 4L * phrases.length;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+/**
+ * A read-only dictionary of words of one language to their transliteration in another
+ *
+ * @author asankha
+ */
+interface Dictionary {
+
+    /**
+     * Look up a word without allocating, so that the word may be held in a reused buffer
+     *
+     * @param word the word in lower case
+     * @return the transliteration of the word, or null if it is not found
+     */
+    String get(CharSequence word);
+
+    int size();
+
+    /**
+     * @return all words of the dictionary, in no particular order
+     */
+    String[] keys();
+
+    /**
+     * @return the words of the dictionary containing a space, i.e. those which may be phrases, in no particular order,
+     * without allocating anything for the other words
+     */
+    String[] phrases();
+}
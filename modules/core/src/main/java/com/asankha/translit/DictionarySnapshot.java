@@ -0,0 +1,304 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * A binary snapshot of all the dictionaries loaded from the mapping files (en-to-si.txt, en-to-ta.txt and
+ * si-to-ta.txt), which is memory mapped at startup and searched in place, instead of parsing some 26K lines into
+ * HashMaps. The phonetic rules are not included, as they are already compiled into classes at build time.
+ *
+ * A snapshot is created with the command line tool, which reads the mapping files as the engine would, i.e. from
+ * the given directory in preference to the classpath
+ * $java -cp translit-core-1.0.0.jar com.asankha.translit.DictionarySnapshot /tmp/translit.snapshot [dir]
+ *
+ * and is used by Transliterate when specified with -Dtranslit.snapshot=/tmp/translit.snapshot. The snapshot records
+ * the CRC32 of each mapping file it was created from, and the dictionaries of a language pair are loaded from its
+ * mapping file instead where that file (e.g. in -Dtranslit.dir) differs, e.g. after an update picked up by a reload.
+ * The snapshot should be re-created after such an update, to be of use again. Note that the check reads the whole
+ * mapping file of a language pair (some 300-400KB) each time the pair is loaded, including on a reload - which is
+ * still much less work than parsing it into the dictionaries.
+ *
+ * The file format is as follows, with all values big endian:
+ *   int magic, int version, long[3] CRC32s of en-to-si.txt, en-to-ta.txt and si-to-ta.txt, int[18] table offsets -
+ *   indexed by (src * 3 + dst) * 2 + (0 for names, 1 for other), with 0 where there is no table. Each table is an
+ *   int count followed by count (int key, int value) offsets of the strings, in ascending order of the keys as per
+ *   String.compareTo(). Each string is an int length followed by its UTF-16 chars.
+ *
+ * @author asankha
+ */
+public final class DictionarySnapshot {
+
+    private static final int MAGIC   = 0x54524c54; // "TRLT"
+    private static final int VERSION = 2;
+    private static final int TABLES  = 18;
+    private static final int[][] PAIRS = {
+        {Transliterate.ENGLISH, Transliterate.SINHALA},
+        {Transliterate.ENGLISH, Transliterate.TAMIL},
+        {Transliterate.SINHALA, Transliterate.TAMIL}
+    };
+    private static final int HEADER  = 8 + 8 * PAIRS.length + 4 * TABLES;
+
+    private final ByteBuffer buf;
+
+    private DictionarySnapshot(ByteBuffer buf) throws IOException {
+        if (buf.limit() < 8 || buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a dictionary snapshot");
+        }
+        if (buf.getInt(4) != VERSION) {
+            throw new IOException("Unsupported dictionary snapshot version : " + buf.getInt(4));
+        }
+        if (buf.limit() < HEADER) {
+            throw new IOException("Not a dictionary snapshot");
+        }
+        this.buf = buf;
+    }
+
+    /**
+     * Memory map a snapshot file. The mapping remains valid after the file channel is closed
+     *
+     * @param file the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file cannot be read, or is not a valid snapshot
+     */
+    public static DictionarySnapshot open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel ch = raf.getChannel();
+            MappedByteBuffer mbb = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            return new DictionarySnapshot(mbb);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @return the dictionary for the language pair, of person names if names is true, or else of other words
+     */
+    Dictionary getDictionary(int src, int dst, boolean names) {
+        int offset = buf.getInt(8 + 8 * PAIRS.length + 4 * index(src, dst, names));
+        if (offset == 0) {
+            throw new IllegalArgumentException("Invalid language pair : " + src + " to " + dst);
+        }
+        return new Table(buf, offset);
+    }
+
+    /**
+     * @return true if the mapping file of the language pair that the loader would read is the one the snapshot was
+     * created from
+     */
+    boolean isCurrent(int src, int dst, ResourceLoader loader) throws IOException {
+        for (int i=0; i<PAIRS.length; i++) {
+            if (PAIRS[i][0] == Math.min(src, dst) && PAIRS[i][1] == Math.max(src, dst)) {
+                return buf.getLong(8 + 8 * i) == loader.checksum(ResourceLoader.mappingFile(src, dst));
+            }
+        }
+        throw new IllegalArgumentException("Invalid language pair : " + src + " to " + dst);
+    }
+
+    private static int index(int src, int dst, boolean names) {
+        return (src * 3 + dst) * 2 + (names ? 0 : 1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("java " + DictionarySnapshot.class.getName() + " [output file] [resource directory]");
+            System.exit(1);
+        }
+        File out = new File(args[0]);
+        write(out, args.length > 1 ? new File(args[1]) : null);
+        System.out.println("Created dictionary snapshot : " + out + " (" + out.length() + " bytes)");
+    }
+
+    /**
+     * Create a snapshot from the mapping files
+     *
+     * @param out the snapshot file to create
+     * @param dir the directory to read mapping files from in preference to the classpath, or null
+     * @throws IOException on a failure to read the mapping files, or to write the snapshot
+     */
+    public static void write(File out, File dir) throws IOException {
+
+        ResourceLoader loader = new ResourceLoader(DictionarySnapshot.class.getClassLoader(), dir);
+        List<SortedMap<String, String>> tables = new ArrayList<SortedMap<String, String>>();
+        for (int i=0; i<TABLES; i++) {
+            tables.add(null);
+        }
+
+        long[] checksums = new long[PAIRS.length];
+        for (int i=0; i<PAIRS.length; i++) {
+            int[] pair = PAIRS[i];
+            checksums[i] = loader.checksum(ResourceLoader.mappingFile(pair[0], pair[1]));
+            Map<String, String> namesOne = new HashMap<String, String>();
+            Map<String, String> otherOne = new HashMap<String, String>();
+            Map<String, String> namesTwo = new HashMap<String, String>();
+            Map<String, String> otherTwo = new HashMap<String, String>();
+            loader.loadMappingFile(ResourceLoader.mappingFile(pair[0], pair[1]), namesOne, otherOne, namesTwo, otherTwo);
+
+            tables.set(index(pair[0], pair[1], true), new TreeMap<String, String>(namesOne));
+            tables.set(index(pair[0], pair[1], false), new TreeMap<String, String>(otherOne));
+            tables.set(index(pair[1], pair[0], true), new TreeMap<String, String>(namesTwo));
+            tables.set(index(pair[1], pair[0], false), new TreeMap<String, String>(otherTwo));
+        }
+
+        // lay out the header, then each table's index, followed by its strings
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(bos);
+        int[] offsets = new int[TABLES];
+        int pos = HEADER;
+
+        for (int t=0; t<TABLES; t++) {
+            SortedMap<String, String> table = tables.get(t);
+            if (table == null) {
+                continue;
+            }
+            offsets[t] = pos;
+            dos.writeInt(table.size());
+            int strings = pos + 4 + 8 * table.size();
+            for (Map.Entry<String, String> e : table.entrySet()) {
+                dos.writeInt(strings);
+                strings += 4 + 2 * e.getKey().length();
+                dos.writeInt(strings);
+                strings += 4 + 2 * e.getValue().length();
+            }
+            for (Map.Entry<String, String> e : table.entrySet()) {
+                dos.writeInt(e.getKey().length());
+                dos.writeChars(e.getKey());
+                dos.writeInt(e.getValue().length());
+                dos.writeChars(e.getValue());
+            }
+            pos = strings;
+        }
+        dos.flush();
+
+        DataOutputStream file = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(out)));
+        try {
+            file.writeInt(MAGIC);
+            file.writeInt(VERSION);
+            for (long checksum : checksums) {
+                file.writeLong(checksum);
+            }
+            for (int offset : offsets) {
+                file.writeInt(offset);
+            }
+            bos.writeTo(file);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * A dictionary searched in place within the snapshot by binary search, comparing the chars of the keys directly
+     * against the word, so that only a result found is allocated
+     */
+    private static final class Table implements Dictionary {
+
+        private final ByteBuffer buf;
+        private final int index;
+        private final int count;
+
+        private Table(ByteBuffer buf, int offset) {
+            this.buf = buf;
+            this.count = buf.getInt(offset);
+            this.index = offset + 4;
+        }
+
+        public String get(CharSequence word) {
+            int lo = 0, hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = compare(buf.getInt(index + 8 * mid), word);
+                if (c < 0) {
+                    lo = mid + 1;
+                } else if (c > 0) {
+                    hi = mid - 1;
+                } else {
+                    return read(buf.getInt(index + 8 * mid + 4));
+                }
+            }
+            return null;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public String[] keys() {
+            String[] result = new String[count];
+            for (int i=0; i<count; i++) {
+                result[i] = read(buf.getInt(index + 8 * i));
+            }
+            return result;
+        }
+
+        public String[] phrases() {
+            // the keys are scanned in place, so that only those which are phrases are read into Strings
+            int phrases = 0;
+            for (int i=0; i<count; i++) {
+                if (hasSpace(buf.getInt(index + 8 * i))) {
+                    phrases++;
+                }
+            }
+            String[] result = new String[phrases];
+            phrases = 0;
+            for (int i=0; i<count; i++) {
+                int offset = buf.getInt(index + 8 * i);
+                if (hasSpace(offset)) {
+                    result[phrases++] = read(offset);
+                }
+            }
+            return result;
+        }
+
+        private boolean hasSpace(int offset) {
+            int len = buf.getInt(offset);
+            for (int i=0; i<len; i++) {
+                if (buf.getChar(offset + 4 + 2 * i) == ' ') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int compare(int offset, CharSequence word) {
+            int len = buf.getInt(offset);
+            int n = Math.min(len, word.length());
+            for (int i=0; i<n; i++) {
+                char c = buf.getChar(offset + 4 + 2 * i);
+                char w = word.charAt(i);
+                if (c != w) {
+                    return c - w;
+                }
+            }
+            return len - word.length();
+        }
+
+        private String read(int offset) {
+            char[] chars = new char[buf.getInt(offset)];
+            for (int i=0; i<chars.length; i++) {
+                chars[i] = buf.getChar(offset + 4 + 2 * i);
+            }
+            return new String(chars);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The transliterators for all language pairs loaded from one set of resources, each of which is loaded on first use.
+ *
+ * A pair is loaded once under its own lock, and is read without any locking thereafter. The rule sets are shared by
+ * the pairs that use them, and are also loaded on first use. A failure to load a pair is reported to the caller
+ * that triggered the load, and the load is attempted again on the next use.
+ *
+ * @author asankha
+ */
+final class Engines {
+
+    private static final boolean DEBUG = Boolean.getBoolean("debug");
+
+    private final File dir;
+    private final File snapshotFile;
+    private final int cacheSize;
+    private final Metrics[] metrics;
+    private final int fuzzyDistance;
+    private final long fuzzyTimeoutNanos;
+    private final boolean compact;
+    private final ResourceLoader loader;
+
+    /** The loaded transliterators, indexed by src * 3 + dst */
+    private final AtomicReferenceArray<Transliterator> engines = new AtomicReferenceArray<Transliterator>(9);
+    private final Object[] locks = new Object[9];
+    /** The transliterators of mixed text, indexed by dst */
+    private final AtomicReferenceArray<MixedTransliterator> mixed = new AtomicReferenceArray<MixedTransliterator>(3);
+
+    // guarded by this
+    private final Map<Integer, RuleSet<LangToPhonetic>> langToPhonetic = new HashMap<Integer, RuleSet<LangToPhonetic>>();
+    private final Map<Integer, RuleSet<PhoneticToLang>> phoneticToLang = new HashMap<Integer, RuleSet<PhoneticToLang>>();
+    private DictionarySnapshot snapshot;
+    private final Map<String, CompactDictionaries> compactDictionaries = new HashMap<String, CompactDictionaries>();
+
+    /**
+     * @param dir the directory to load files from in preference to the classpath, or null
+     * @param snapshotFile a dictionary snapshot to use if it exists and was created from the same mapping files, or
+     * null to always load the mapping files
+     * @param cacheSize the size of the phonetic results cache of each transliterator, or 0 for none
+     */
+    Engines(File dir, File snapshotFile, int cacheSize) {
+        this(dir, snapshotFile, cacheSize, null, 0, 0, false);
+    }
+
+    /**
+     * @param dir the directory to load files from in preference to the classpath, or null
+     * @param snapshotFile a dictionary snapshot to use if it exists and was created from the same mapping files, or
+     * null to always load the mapping files
+     * @param cacheSize the size of the phonetic results cache of each transliterator, or 0 for none
+     * @param metrics the metrics for each transliterator indexed by src * 3 + dst, or null for none
+     * @param fuzzyDistance the maximum edit distance of the fuzzy dictionary lookup, or 0 for none
+     * @param fuzzyTimeoutNanos the maximum time to spend on each fuzzy lookup
+     * @param compact true to hold the dictionaries loaded from the mapping files in the compact form shared by both
+     * directions of a language pair - see CompactDictionaries
+     */
+    Engines(File dir, File snapshotFile, int cacheSize, Metrics[] metrics, int fuzzyDistance,
+        long fuzzyTimeoutNanos, boolean compact) {
+        this.dir = dir;
+        this.snapshotFile = snapshotFile;
+        this.cacheSize = cacheSize;
+        this.metrics = metrics;
+        this.fuzzyDistance = fuzzyDistance;
+        this.fuzzyTimeoutNanos = fuzzyTimeoutNanos;
+        this.compact = compact;
+        this.loader = new ResourceLoader(Engines.class.getClassLoader(), dir);
+        for (int i=0; i<locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * @return the transliterator for the language pair, loading it if this is its first use
+     * @throws IOException on a failure to load the rules or dictionaries of the pair
+     */
+    Transliterator get(int src, int dst) throws IOException {
+        final int i = src * 3 + dst;
+        Transliterator t = engines.get(i);
+        if (t == null) {
+            synchronized (locks[i]) {
+                t = engines.get(i);
+                if (t == null) {
+                    t = load(src, dst);
+                    engines.set(i, t);
+                }
+            }
+        }
+        return t;
+    }
+
+    /**
+     * @return the transliterator of mixed text into the language, sharing the transliterators of the other two
+     * languages into it, and loading them if this is their first use
+     * @throws IOException on a failure to load the rules or dictionaries of either pair
+     */
+    MixedTransliterator getMixed(int dst) throws IOException {
+        MixedTransliterator m = mixed.get(dst);
+        if (m == null) {
+            Transliterator[] sources = new Transliterator[2];
+            int count = 0;
+            for (int src=Transliterate.ENGLISH; src<=Transliterate.TAMIL; src++) {
+                if (src != dst) {
+                    sources[count++] = get(src, dst);
+                }
+            }
+            // any racing thread has built an equivalent one from the same transliterators
+            mixed.compareAndSet(dst, null, new MixedTransliterator(sources));
+            m = mixed.get(dst);
+        }
+        return m;
+    }
+
+    /**
+     * @return true if the transliterator for the language pair has been loaded
+     */
+    boolean isLoaded(int src, int dst) {
+        return engines.get(src * 3 + dst) != null;
+    }
+
+    /**
+     * Create a new transliterator for the language pair, reading only the files it requires
+     */
+    Transliterator load(int src, int dst) throws IOException {
+
+        Dictionary names;
+        Dictionary other;
+
+        DictionarySnapshot snapshot = getSnapshot();
+        if (snapshot != null && !snapshot.isCurrent(src, dst, loader)) {
+            if (DEBUG) {
+                System.out.println("Dictionary snapshot is older than " + ResourceLoader.mappingFile(src, dst));
+            }
+            snapshot = null;
+        }
+        if (snapshot != null) {
+            names = snapshot.getDictionary(src, dst, true);
+            other = snapshot.getDictionary(src, dst, false);
+        } else if (compact) {
+            CompactDictionaries dictionaries = getCompactDictionaries(ResourceLoader.mappingFile(src, dst));
+            names = dictionaries.getDictionary(src < dst, true);
+            other = dictionaries.getDictionary(src < dst, false);
+        } else {
+            Map<String, String> namesMap = new HashMap<String, String>();
+            Map<String, String> otherMap = new HashMap<String, String>();
+            if (src < dst) {
+                loader.loadMappingFile(ResourceLoader.mappingFile(src, dst), namesMap, otherMap, null, null);
+            } else {
+                loader.loadMappingFile(ResourceLoader.mappingFile(src, dst), null, null, namesMap, otherMap);
+            }
+            names = new MapDictionary(namesMap);
+            other = new MapDictionary(otherMap);
+        }
+
+        RuleSet<LangToPhonetic> l2p = getLangToPhonetic(src);
+        RuleSet<PhoneticToLang> p2l = getPhoneticToLang(dst);
+
+        if (DEBUG) {
+            System.out.println(ResourceLoader.code(src) + " to Ph rules : " + l2p.size());
+            System.out.println("Ph to " + ResourceLoader.code(dst) + " rules : " + p2l.size());
+            System.out.println(ResourceLoader.code(src) + " to " + ResourceLoader.code(dst) + " mappings : " +
+                names.size() + " : " + other.size());
+        }
+
+        Transliterator t = new Transliterator(src, dst, names, other, l2p, p2l);
+        if (cacheSize > 0) {
+            t = t.withCache(cacheSize);
+        }
+        if (fuzzyDistance > 0) {
+            t = t.withFuzzyLookup(fuzzyDistance, fuzzyTimeoutNanos);
+        }
+        return metrics != null ? t.withMetrics(metrics[src * 3 + dst]) : t;
+    }
+
+    private synchronized DictionarySnapshot getSnapshot() throws IOException {
+        if (snapshot == null && snapshotFile != null && snapshotFile.isFile()) {
+            snapshot = DictionarySnapshot.open(snapshotFile);
+            if (DEBUG) {
+                System.out.println("Dictionaries mapped from snapshot : " + snapshotFile);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the dictionaries of both directions of the mapping file, loading them if this is their first use
+     */
+    private synchronized CompactDictionaries getCompactDictionaries(String filename) throws IOException {
+        CompactDictionaries dictionaries = compactDictionaries.get(filename);
+        if (dictionaries == null) {
+            Map<String, String> namesOne = new HashMap<String, String>();
+            Map<String, String> otherOne = new HashMap<String, String>();
+            Map<String, String> namesTwo = new HashMap<String, String>();
+            Map<String, String> otherTwo = new HashMap<String, String>();
+            loader.loadMappingFile(filename, namesOne, otherOne, namesTwo, otherTwo);
+            dictionaries = new CompactDictionaries(namesOne, otherOne, namesTwo, otherTwo);
+            compactDictionaries.put(filename, dictionaries);
+            if (DEBUG) {
+                System.out.println("Compact dictionaries of " + filename + " : " + dictionaries.strings() +
+                    " strings in " + dictionaries.heapSize() + " bytes");
+            }
+        }
+        return dictionaries;
+    }
+
+    private synchronized RuleSet<LangToPhonetic> getLangToPhonetic(int lang) throws IOException {
+        RuleSet<LangToPhonetic> rules = langToPhonetic.get(lang);
+        if (rules == null) {
+            rules = loader.loadLangToPhonetic(lang);
+            langToPhonetic.put(lang, rules);
+        }
+        return rules;
+    }
+
+    private synchronized RuleSet<PhoneticToLang> getPhoneticToLang(int lang) throws IOException {
+        RuleSet<PhoneticToLang> rules = phoneticToLang.get(lang);
+        if (rules == null) {
+            rules = loader.loadPhoneticToLang(lang);
+            phoneticToLang.put(lang, rules);
+        }
+        return rules;
+    }
+}
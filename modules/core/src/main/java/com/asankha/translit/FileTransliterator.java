@@ -0,0 +1,160 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.io.*;
+import java.util.LinkedList;
+import java.util.concurrent.*;
+
+/**
+ * Transliterates a file line by line in parallel, writing the results in the order of the input lines.
+ *
+ * The input is read with a large buffer in chunks of lines, each of which is transliterated by one of a pool of
+ * worker threads. The results of the chunks are written out in the order they were read, and at most a few chunks
+ * per worker are held in memory at any time, so that files of any size may be processed. Files are read and written
+ * as UTF-8.
+ *
+ * e.g.
+ * $java -jar translit-core-1.0.0.jar -s en -t si -i /tmp/input -o /tmp/output -w 8
+ *
+ * @author asankha
+ */
+public final class FileTransliterator {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int CHUNK_LINES = 4096;
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private final Transliterator transliterator;
+    private final int gender;
+    private final int workers;
+
+    /**
+     * @param transliterator the transliterator to use
+     * @param gender the gender - i.e. Transliterate.UNKNOWN, MALE or FEMALE
+     * @param workers the number of worker threads
+     */
+    public FileTransliterator(Transliterator transliterator, int gender, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("The number of workers must be at least one : " + workers);
+        }
+        this.transliterator = transliterator;
+        this.gender = gender;
+        this.workers = workers;
+    }
+
+    /**
+     * Transliterate each line of the input file into the output file
+     *
+     * @return the number of lines transliterated
+     * @throws IOException on a failure to read or write
+     */
+    public long transliterate(File input, File output) throws IOException {
+        Reader in = new InputStreamReader(new FileInputStream(input), "UTF-8");
+        try {
+            Writer out = new OutputStreamWriter(new FileOutputStream(output), "UTF-8");
+            try {
+                return transliterate(in, out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Transliterate each line read from the reader, into the writer. Neither is closed
+     *
+     * @return the number of lines transliterated
+     * @throws IOException on a failure to read or write
+     */
+    public long transliterate(Reader reader, Writer writer) throws IOException {
+
+        BufferedReader in = new BufferedReader(reader, BUFFER_SIZE);
+        BufferedWriter out = new BufferedWriter(writer, BUFFER_SIZE);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        LinkedList<Future<String[]>> pending = new LinkedList<Future<String[]>>();
+        long lines = 0;
+
+        try {
+            String[] chunk;
+            while ((chunk = readChunk(in)) != null) {
+                lines += chunk.length;
+                final String[] lns = chunk;
+                pending.add(executor.submit(new Callable<String[]>() {
+                    public String[] call() {
+                        for (int i=0; i<lns.length; i++) {
+                            lns[i] = transliterator.translateLine(lns[i], gender);
+                        }
+                        return lns;
+                    }
+                }));
+
+                // write out the oldest chunks once enough are in progress, to bound the memory used
+                while (pending.size() > workers * CHUNKS_PER_WORKER) {
+                    write(out, pending.removeFirst());
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(out, pending.removeFirst());
+            }
+            out.flush();
+
+        } finally {
+            executor.shutdownNow();
+        }
+        return lines;
+    }
+
+    private static String[] readChunk(BufferedReader in) throws IOException {
+        String[] chunk = new String[CHUNK_LINES];
+        int count = 0;
+        String s;
+        while (count < CHUNK_LINES && (s = in.readLine()) != null) {
+            chunk[count++] = s;
+        }
+        if (count == 0) {
+            return null;
+        } else if (count < CHUNK_LINES) {
+            String[] last = new String[count];
+            System.arraycopy(chunk, 0, last, 0, count);
+            return last;
+        }
+        return chunk;
+    }
+
+    private static void write(BufferedWriter out, Future<String[]> future) throws IOException {
+        String[] lines;
+        try {
+            lines = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a transliteration to complete");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Transliteration failed : " + e.getCause(), e.getCause());
+        }
+        for (String line : lines) {
+            out.write(line);
+            out.newLine();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.util.*;
+
+/**
+ * An index of the words of a dictionary for finding the nearest word to a misspelt one, by the symmetric delete
+ * method (as in SymSpell).
+ *
+ * Every word is indexed under each string obtained by deleting up to maxDistance of its characters. A misspelt word
+ * within maxDistance edits of a dictionary word must share one of these deletes with it, so only the few words
+ * found under the deletes of the misspelt word need to be compared with it, rather than the whole dictionary. The
+ * edit distance is the optimal string alignment distance, i.e. insertions, deletions, substitutions and the
+ * transposition of adjacent characters each count as one edit.
+ *
+ * @author asankha
+ */
+final class FuzzyIndex {
+
+    private final String[] words;
+    private final int maxDistance;
+    private final Map<String, int[]> deletes = new HashMap<String, int[]>();
+
+    /**
+     * @param words the words to index
+     * @param maxDistance the maximum edit distance at which words will be looked up
+     */
+    FuzzyIndex(String[] words, int maxDistance) {
+        // sorted, so that the first of words at the same distance is chosen consistently
+        this.words = words.clone();
+        Arrays.sort(this.words);
+        this.maxDistance = maxDistance;
+
+        Set<String> variants = new HashSet<String>();
+        for (int i=0; i<this.words.length; i++) {
+            variants.clear();
+            addDeletes(this.words[i], maxDistance, variants);
+            for (String v : variants) {
+                int[] a = deletes.get(v);
+                if (a == null) {
+                    a = new int[] {i};
+                } else {
+                    int[] b = new int[a.length + 1];
+                    System.arraycopy(a, 0, b, 0, a.length);
+                    b[a.length] = i;
+                    a = b;
+                }
+                deletes.put(v, a);
+            }
+        }
+    }
+
+    /**
+     * Find the nearest indexed word to the given one
+     *
+     * @param word the word to look up
+     * @param distance the maximum edit distance, no more than that of the index
+     * @param deadline the System.nanoTime() after which to give up searching
+     * @return the nearest word (the first in sort order of those equally near), or null if there is none within the
+     * distance or the deadline passed before the search was complete
+     */
+    String find(String word, int distance, long deadline) {
+
+        distance = Math.min(distance, maxDistance);
+        Set<String> variants = new LinkedHashSet<String>();
+        addDeletes(word, distance, variants);
+
+        // the nearest word so far, and the greatest distance still of interest
+        int best = -1;
+        int bestDistance = distance;
+        Set<Integer> seen = new HashSet<Integer>();
+
+        for (String v : variants) {
+            // a partial search could return a farther word depending on the load, so give up instead
+            if (System.nanoTime() - deadline > 0) {
+                return null;
+            }
+            int[] candidates = deletes.get(v);
+            if (candidates == null) {
+                continue;
+            }
+            for (int c : candidates) {
+                if (!seen.add(c)) {
+                    continue;
+                }
+                int d = distance(word, words[c], bestDistance);
+                if (d <= bestDistance && (best == -1 || d < bestDistance || c < best)) {
+                    best = c;
+                    bestDistance = d;
+                }
+            }
+        }
+        return best == -1 ? null : words[best];
+    }
+
+    /**
+     * Adds the word and every non empty string obtained by deleting up to the given number of its characters
+     */
+    private static void addDeletes(String word, int distance, Set<String> out) {
+        out.add(word);
+        List<String> level = Collections.singletonList(word);
+        for (int d=0; d<distance; d++) {
+            List<String> next = new ArrayList<String>();
+            for (String w : level) {
+                for (int i=0; w.length() > 1 && i<w.length(); i++) {
+                    String v = w.substring(0, i) + w.substring(i + 1);
+                    if (out.add(v)) {
+                        next.add(v);
+                    }
+                }
+            }
+            level = next;
+        }
+    }
+
+    /**
+     * @return the optimal string alignment distance between a and b, or any value greater than max if it is more
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] prev2 = new int[b.length() + 1];
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j=0; j<=b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i=1; i<=a.length(); i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j=1; j<=b.length(); j++) {
+                int cost = a.charAt(i-1) == b.charAt(j-1) ? 0 : 1;
+                int d = Math.min(Math.min(prev[j] + 1, cur[j-1] + 1), prev[j-1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i-1) == b.charAt(j-2) && a.charAt(i-2) == b.charAt(j-1)) {
+                    d = Math.min(d, prev2[j-2] + 1);
+                }
+                cur[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] t = prev2;
+            prev2 = prev;
+            prev = cur;
+            cur = t;
+        }
+        return prev[b.length()];
+    }
+}
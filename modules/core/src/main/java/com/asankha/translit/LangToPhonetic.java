@@ -21,6 +21,13 @@ public class LangToPhonetic {
         this.phonetic = phonetic;
     }
 
+    LangToPhonetic(String rule, Integer gender, Integer length, String phonetic) {
+        this.rule = rule;
+        this.gender = gender;
+        this.length = length;
+        this.phonetic = phonetic;
+    }
+
     public String getRule() {
         return rule;
     }
@@ -0,0 +1,123 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.util.Map;
+
+/**
+ * A dictionary loaded from the mapping files, held in an open addressing hash table so that a word may be looked up
+ * from any CharSequence (e.g. a reused StringBuilder) without allocating a String for it
+ *
+ * @author asankha
+ */
+final class MapDictionary implements Dictionary {
+
+    private final String[] keys;
+    private final String[] values;
+    private final int mask;
+    private final int size;
+
+    MapDictionary(Map<String, String> map) {
+        int capacity = 4;
+        while (capacity < map.size() * 2) {
+            capacity <<= 1;
+        }
+        keys = new String[capacity];
+        values = new String[capacity];
+        mask = capacity - 1;
+        size = map.size();
+
+        for (Map.Entry<String, String> e : map.entrySet()) {
+            int i = spread(e.getKey().hashCode()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = e.getKey();
+            values[i] = e.getValue();
+        }
+    }
+
+    public String get(CharSequence word) {
+        for (int i = spread(hashCode(word)) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (contentEquals(keys[i], word)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String[] keys() {
+        String[] result = new String[size];
+        int count = 0;
+        for (String k : keys) {
+            if (k != null) {
+                result[count++] = k;
+            }
+        }
+        return result;
+    }
+
+    public String[] phrases() {
+        int count = 0;
+        for (String k : keys) {
+            if (k != null && k.indexOf(' ') != -1) {
+                count++;
+            }
+        }
+        String[] result = new String[count];
+        count = 0;
+        for (String k : keys) {
+            if (k != null && k.indexOf(' ') != -1) {
+                result[count++] = k;
+            }
+        }
+        return result;
+    }
+
+    /** The same hash as String.hashCode(), which a String caches */
+    private static int hashCode(CharSequence s) {
+        if (s instanceof String) {
+            return s.hashCode();
+        }
+        int h = 0;
+        for (int i=0; i<s.length(); i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean contentEquals(String key, CharSequence word) {
+        if (key.length() != word.length()) {
+            return false;
+        }
+        for (int i=0; i<key.length(); i++) {
+            if (key.charAt(i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
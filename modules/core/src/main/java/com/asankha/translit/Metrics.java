@@ -0,0 +1,354 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Low overhead counters of the work done by a transliterator, which may be read as a Snapshot, or through JMX as a
+ * standard MBean. A snapshot is approximate while translations are in progress, as each counter is read independently.
+ *
+ * The counters are striped by thread (see StripedCounters), so that translations on many threads do not contend to
+ * update them. The latency of each translated word is recorded in a histogram of power of two buckets of nanoseconds.
+ * Optionally, the number of times each of the language to phonetic rules was applied is counted too, to find rules
+ * that are hot, or never used.
+ *
+ * The metrics of the shared transliterators used by Transliterate are enabled with -Dtranslit.metrics=true (and the
+ * per rule counts with -Dtranslit.metrics.rules=true), and registered with the platform MBean server under the name
+ * com.asankha.translit:type=Metrics,pair=en-si etc. They are kept across reloads.
+ *
+ * @author asankha
+ */
+public final class Metrics implements MetricsMBean {
+
+    /** The number of latency buckets - bucket i counts latencies of less than 2^i nanoseconds */
+    public static final int LATENCY_BUCKETS = 40;
+
+    private static final int LINES = 0;
+    private static final int WORDS = 1;
+    private static final int NAMES_HITS = 2;
+    private static final int OTHER_HITS = 3;
+    private static final int PHONETIC = 4;
+    private static final int RULE_STEPS = 5;
+    private static final int FUZZY_HITS = 6;
+
+    private final String languagePair;
+    private final boolean countRules;
+    private final StripedCounters counters = new StripedCounters(7);
+    private final StripedCounters latency = new StripedCounters(LATENCY_BUCKETS);
+    private volatile RuleHits ruleHits;
+
+    /**
+     * @param languagePair the name of the language pair, e.g. "en-si"
+     * @param countRules true to count the times each language to phonetic rule is applied
+     */
+    public Metrics(String languagePair, boolean countRules) {
+        this.languagePair = languagePair;
+        this.countRules = countRules;
+    }
+
+    // ------------------------------------- recording, by the transliterator ------------------------------------------
+    void recordLines(int count) {
+        counters.add(LINES, count);
+    }
+
+    void recordWord(long nanos) {
+        counters.increment(WORDS);
+        latency.increment(latencyBucket(nanos));
+    }
+
+    /**
+     * @return the latency histogram bucket for the given nanoseconds, i.e. the smallest i such that nanos < 2^i
+     */
+    static int latencyBucket(long nanos) {
+        return Math.min(64 - Long.numberOfLeadingZeros(Math.max(nanos, 0)), LATENCY_BUCKETS - 1);
+    }
+
+    /**
+     * @return the upper bound in nanoseconds of the bucket of the histogram holding the given percentile, or 0 if the
+     * histogram is empty
+     */
+    static long latencyPercentile(long[] histogram, double percentile) {
+        long total = 0;
+        for (long c : histogram) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max((long) Math.ceil(total * percentile / 100), 1);
+        long seen = 0;
+        for (int i=0; i<histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target) {
+                return 1L << i;
+            }
+        }
+        return 1L << (histogram.length - 1);
+    }
+
+    void recordLookup(boolean names, boolean found) {
+        if (found) {
+            counters.increment(names ? NAMES_HITS : OTHER_HITS);
+        }
+    }
+
+    void recordFuzzyHit() {
+        counters.increment(FUZZY_HITS);
+    }
+
+    void recordPhonetic(int steps) {
+        counters.increment(PHONETIC);
+        counters.add(RULE_STEPS, steps);
+    }
+
+    /**
+     * Bind the per rule counts to the given rules, keeping the counts if they are the rules already bound
+     *
+     * @return the per rule counts to update, or null if rules are not counted
+     */
+    synchronized RuleHits bindRules(RuleSet<LangToPhonetic> rules) {
+        if (!countRules) {
+            return null;
+        }
+        String[] names = new String[rules.size()];
+        for (int i=0; i<names.length; i++) {
+            LangToPhonetic r = rules.get(i);
+            names[i] = r.getRule() + " -> " + r.getPhonetic();
+        }
+        if (ruleHits == null || !Arrays.equals(ruleHits.rules, names)) {
+            ruleHits = new RuleHits(names);
+        }
+        return ruleHits;
+    }
+
+    // ------------------------------------------------ reading --------------------------------------------------------
+    public Snapshot snapshot() {
+        RuleHits r = ruleHits;
+        long[] hits = null;
+        if (r != null) {
+            hits = new long[r.rules.length];
+            for (int i=0; i<hits.length; i++) {
+                hits[i] = r.counts.get(i);
+            }
+        }
+        return new Snapshot(languagePair, counters.get(), latency.get(), r == null ? null : r.rules, hits);
+    }
+
+    public String getLanguagePair() {
+        return languagePair;
+    }
+
+    public long getLineCount() {
+        return counters.get(LINES);
+    }
+
+    public long getWordCount() {
+        return counters.get(WORDS);
+    }
+
+    public long getNamesHitCount() {
+        return counters.get(NAMES_HITS);
+    }
+
+    public long getOtherHitCount() {
+        return counters.get(OTHER_HITS);
+    }
+
+    public long getPhoneticCount() {
+        return counters.get(PHONETIC);
+    }
+
+    public long getRuleStepCount() {
+        return counters.get(RULE_STEPS);
+    }
+
+    public long getFuzzyHitCount() {
+        return counters.get(FUZZY_HITS);
+    }
+
+    public double getAverageRuleSteps() {
+        return snapshot().getAverageRuleSteps();
+    }
+
+    public long[] getLatencyHistogram() {
+        return latency.get();
+    }
+
+    public long getLatency50thPercentileNanos() {
+        return snapshot().getLatencyPercentileNanos(50);
+    }
+
+    public long getLatency99thPercentileNanos() {
+        return snapshot().getLatencyPercentileNanos(99);
+    }
+
+    public String[] getRuleHitCounts() {
+        Snapshot s = snapshot();
+        String[] rules = s.getRules();
+        if (rules == null) {
+            return new String[0];
+        }
+        String[] result = new String[rules.length];
+        for (int i=0; i<rules.length; i++) {
+            result[i] = s.getRuleHitCounts()[i] + " : " + rules[i];
+        }
+        return result;
+    }
+
+    /**
+     * Reset all counts to zero
+     */
+    public synchronized void reset() {
+        counters.reset();
+        latency.reset();
+        if (ruleHits != null) {
+            ruleHits = new RuleHits(ruleHits.rules);
+        }
+    }
+
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * The per rule counts for one version of the rules
+     */
+    static final class RuleHits {
+
+        private final String[] rules;
+        private final AtomicLongArray counts;
+
+        private RuleHits(String[] rules) {
+            this.rules = rules;
+            this.counts = new AtomicLongArray(rules.length);
+        }
+
+        void increment(int rule) {
+            counts.incrementAndGet(rule);
+        }
+    }
+
+    /**
+     * The values of the metrics when read, each counter having been read independently of the others
+     */
+    public static final class Snapshot {
+
+        private final String languagePair;
+        private final long[] counters;
+        private final long[] latency;
+        private final String[] rules;
+        private final long[] ruleHits;
+
+        private Snapshot(String languagePair, long[] counters, long[] latency, String[] rules, long[] ruleHits) {
+            this.languagePair = languagePair;
+            this.counters = counters;
+            this.latency = latency;
+            this.rules = rules;
+            this.ruleHits = ruleHits;
+        }
+
+        public String getLanguagePair() {
+            return languagePair;
+        }
+
+        public long getLineCount() {
+            return counters[LINES];
+        }
+
+        public long getWordCount() {
+            return counters[WORDS];
+        }
+
+        public long getNamesHitCount() {
+            return counters[NAMES_HITS];
+        }
+
+        public long getOtherHitCount() {
+            return counters[OTHER_HITS];
+        }
+
+        /**
+         * @return the number of words translated by the phonetic rules, i.e. not found in the dictionaries, in the cache
+         * of the results of the rules, or by fuzzy lookup
+         */
+        public long getPhoneticCount() {
+            return counters[PHONETIC];
+        }
+
+        /**
+         * @return the number of steps taken by the phonetic rules, i.e. positions at which the rules were matched
+         */
+        public long getRuleStepCount() {
+            return counters[RULE_STEPS];
+        }
+
+        /**
+         * @return the number of words not found in the dictionaries, translated as the nearest dictionary word
+         */
+        public long getFuzzyHitCount() {
+            return counters[FUZZY_HITS];
+        }
+
+        /**
+         * @return the average number of rule steps per word translated by the phonetic rules
+         */
+        public double getAverageRuleSteps() {
+            return counters[PHONETIC] == 0 ? 0 : (double) counters[RULE_STEPS] / counters[PHONETIC];
+        }
+
+        /**
+         * @return the number of words translated with a latency of less than 2^i nanoseconds (and at least half that),
+         * for each bucket i
+         */
+        public long[] getLatencyHistogram() {
+            return latency.clone();
+        }
+
+        /**
+         * @param percentile the percentile, e.g. 99
+         * @return the upper bound in nanoseconds of the bucket holding the given percentile of latencies, or 0 if no
+         * words have been translated
+         */
+        public long getLatencyPercentileNanos(double percentile) {
+            return latencyPercentile(latency, percentile);
+        }
+
+        /**
+         * @return the language to phonetic rules, as "rule -> phonetic", or null if rules are not counted
+         */
+        public String[] getRules() {
+            return rules == null ? null : rules.clone();
+        }
+
+        /**
+         * @return the number of times each rule returned by getRules() was applied, or null if rules are not counted
+         */
+        public long[] getRuleHitCounts() {
+            return ruleHits == null ? null : ruleHits.clone();
+        }
+
+        public String toString() {
+            return "Metrics[" + languagePair + " lines=" + getLineCount() + ", words=" + getWordCount() +
+                ", namesHits=" + getNamesHitCount() + ", otherHits=" + getOtherHitCount() +
+                ", phonetic=" + getPhoneticCount() + ", fuzzyHits=" + getFuzzyHitCount() + ", avgRuleSteps=" + getAverageRuleSteps() +
+                ", p50=" + getLatencyPercentileNanos(50) + "ns, p99=" + getLatencyPercentileNanos(99) + "ns]";
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+/**
+ * The JMX management interface of the Metrics of a transliterator
+ *
+ * @author asankha
+ */
+public interface MetricsMBean {
+
+    String getLanguagePair();
+
+    long getLineCount();
+
+    long getWordCount();
+
+    long getNamesHitCount();
+
+    long getOtherHitCount();
+
+    long getPhoneticCount();
+
+    long getRuleStepCount();
+
+    long getFuzzyHitCount();
+
+    double getAverageRuleSteps();
+
+    long[] getLatencyHistogram();
+
+    long getLatency50thPercentileNanos();
+
+    long getLatency99thPercentileNanos();
+
+    String[] getRuleHitCounts();
+
+    void reset();
+}
@@ -0,0 +1,208 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.io.IOException;
+
+/**
+ * Translates text mixing English, Sinhala and Tamil words into one target language, finding the source language of
+ * each word from the Unicode block of its letters, rather than requiring the text to be split by language first.
+ *
+ * A line is split into runs of consecutive words of the same language in a single pass, and each run (with the
+ * delimiters following it) is translated by the transliterator of its language, as translateLine() would, so that
+ * phrases of its dictionaries are still found. Words already in the target language are copied as is. Words without
+ * letters of any of the languages (e.g. numbers) are taken to be in the language of the word before them, or else of
+ * the word after them, or else English. Hence text entirely in one language is translated exactly as translateLine()
+ * of its transliterator would.
+ *
+ * An instance is immutable, and may be shared by any number of threads.
+ *
+ * e.g.
+ * MixedTransliterator t = MixedTransliterator.newInstance(Transliterate.SINHALA);
+ * t.translateLine("asankha பெரேரா, අසන්ඛ", Transliterate.MALE);
+ *
+ * @author asankha
+ */
+public final class MixedTransliterator {
+
+    private static final ThreadLocal<StringBuilder> LOWER_CASE = new ThreadLocal<StringBuilder>() {
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    private final int dst;
+    /** The transliterators from each language to the target, indexed by the source language, or null for the target */
+    private final Transliterator[] sources = new Transliterator[3];
+
+    /**
+     * @param sources the transliterators to the target language, from each of the other two languages
+     * @throws IllegalArgumentException unless there is one transliterator from each of the other two languages, to
+     * the same target language
+     */
+    public MixedTransliterator(Transliterator[] sources) {
+        if (sources.length != 2 || sources[0].getTarget() != sources[1].getTarget() ||
+            sources[0].getSource() == sources[1].getSource()) {
+            throw new IllegalArgumentException("Expected transliterators from two languages to the same target");
+        }
+        this.dst = sources[0].getTarget();
+        for (Transliterator t : sources) {
+            this.sources[t.getSource()] = t;
+        }
+    }
+
+    /**
+     * Create a transliterator of mixed text into the given language, loading the rules and dictionaries from the
+     * classpath
+     *
+     * @param dst the target language - i.e. Transliterate.ENGLISH, SINHALA or TAMIL
+     * @return the transliterator
+     * @throws IOException on a failure to load the rules or dictionaries
+     */
+    public static MixedTransliterator newInstance(int dst) throws IOException {
+        Transliterator[] sources = new Transliterator[2];
+        int count = 0;
+        for (int src=Transliterate.ENGLISH; src<=Transliterate.TAMIL; src++) {
+            if (src != dst) {
+                sources[count++] = Transliterator.newInstance(src, dst);
+            }
+        }
+        return new MixedTransliterator(sources);
+    }
+
+    public int getTarget() {
+        return dst;
+    }
+
+    /**
+     * @return the language of the first letter of the text of one of the three languages - i.e. Transliterate.ENGLISH,
+     * SINHALA or TAMIL, or -1 if there is none
+     */
+    public static int detectLanguage(CharSequence s) {
+        for (int i=0; i<s.length(); i++) {
+            int lang = language(s.charAt(i));
+            if (lang != -1) {
+                return lang;
+            }
+        }
+        return -1;
+    }
+
+    private static int language(char c) {
+        if (c >= '\u0D80' && c <= '\u0DFF') {
+            return Transliterate.SINHALA;
+        } else if (c >= '\u0B80' && c <= '\u0BFF') {
+            return Transliterate.TAMIL;
+        } else if (c < '\u0250' && Character.isLetter(c)) {
+            return Transliterate.ENGLISH;
+        }
+        return -1;
+    }
+
+    //----------------------------- translate a phrase of mixed languages ----------------------------------------------
+    public String translateLine(String s, int gender) {
+        StringBuilder sb = new StringBuilder(s.length() * 2);
+        translateLine(s, gender, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Translate a line into the given buffer
+     *
+     * @param s the line to translate
+     * @param gender the gender - i.e. Transliterate.UNKNOWN, MALE or FEMALE
+     * @param out the buffer to append the translation to
+     */
+    public void translateLine(CharSequence s, int gender, StringBuilder out) {
+
+        final int len = s.length();
+        // as by translateLine(), a line of one token is translated as a word
+        int i = 0;
+        while (i < len && Transliterator.DELIMITERS.indexOf(s.charAt(i)) == -1) {
+            i++;
+        }
+        if (len == 1 || i == len) {
+            translateWord(s, gender, out);
+            return;
+        }
+
+        // the start and language of the run of words of the same language in progress, where the language is -1
+        // until a word of one of the languages is seen
+        int runStart = 0;
+        int runLang = -1;
+        for (i=0; i<len; i++) {
+            if (Transliterator.DELIMITERS.indexOf(s.charAt(i)) != -1) {
+                continue;
+            }
+            int lang = -1;
+            int end = i;
+            while (end < len && Transliterator.DELIMITERS.indexOf(s.charAt(end)) == -1) {
+                if (lang == -1) {
+                    lang = language(s.charAt(end));
+                }
+                end++;
+            }
+            if (lang != -1) {
+                if (runLang != -1 && lang != runLang) {
+                    translateRun(s, runStart, i, runLang, gender, out);
+                    runStart = i;
+                }
+                runLang = lang;
+            }
+            i = end;
+        }
+        translateRun(s, runStart, len, runLang == -1 ? Transliterate.ENGLISH : runLang, gender, out);
+    }
+
+    private void translateRun(CharSequence s, int from, int to, int lang, int gender, StringBuilder out) {
+        Transliterator t = sources[lang];
+        if (t == null) {
+            out.append(s, from, to);
+        } else {
+            StringBuilder lowerCase = Transliterator.toLowerCase(s.subSequence(from, to), LOWER_CASE.get());
+            t.translateTokens(lowerCase, gender, out);
+            if (lowerCase.capacity() > Transliterator.MAX_RETAINED_CAPACITY) {
+                LOWER_CASE.remove();
+            }
+        }
+    }
+
+    // ---------------------------- translate one word of any language -------------------------------------------------
+    public String translateWord(String s, int gender) {
+        StringBuilder sb = new StringBuilder(s.length() * 2);
+        translateWord(s, gender, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Translate a word into the given buffer, or copy it as is if it is already in the target language
+     *
+     * @param s the word to translate
+     * @param gender the gender - i.e. Transliterate.UNKNOWN, MALE or FEMALE
+     * @param out the buffer to append the translation to
+     */
+    public void translateWord(CharSequence s, int gender, StringBuilder out) {
+        int lang = detectLanguage(s);
+        Transliterator t = sources[lang == -1 ? Transliterate.ENGLISH : lang];
+        if (t == null) {
+            out.append(s);
+        } else {
+            t.translateWord(s, gender, out);
+        }
+    }
+}
@@ -19,6 +19,12 @@ public class PhoneticToLang {
         } catch (NumberFormatException ignore) {}
     }
 
+    PhoneticToLang(String rule, String lang, Integer length) {
+        this.rule = rule;
+        this.lang = lang;
+        this.length = length;
+    }
+
     public String getRule() {
         return rule;
     }
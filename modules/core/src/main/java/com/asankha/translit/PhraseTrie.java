@@ -0,0 +1,191 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+/**
+ * A trie of the phrases of a dictionary (e.g. "king coconut"), i.e. its keys of more than one word, by word, to find
+ * the longest phrase starting at a word of a line.
+ *
+ * The words of a phrase are separated by a single space in a line as in the dictionary, and a phrase must end at the
+ * end of a word. Finding the longest phrase walks one word of the line per level of the trie, and so takes time
+ * proportional to the length of the longest phrase at most, however many phrases there are. A key with a delimiter
+ * other than a space can never match, and is left out.
+ *
+ * @author asankha
+ */
+final class PhraseTrie {
+
+    private final Node root = new Node();
+    private int size;
+
+    private PhraseTrie() {}
+
+    /**
+     * @return the trie of the phrases of the dictionary, or null if it has none
+     */
+    static PhraseTrie build(Dictionary dictionary) {
+        PhraseTrie trie = null;
+        for (String key : dictionary.phrases()) {
+            if (!isPhrase(key)) {
+                continue;
+            }
+            if (trie == null) {
+                trie = new PhraseTrie();
+            }
+            Node n = trie.root;
+            for (String word : key.split(" ")) {
+                n = n.child(word, 0, word.length(), true);
+            }
+            n.value = dictionary.get(key);
+            trie.size++;
+        }
+        return trie;
+    }
+
+    /**
+     * @return true if the key is two or more words separated by single spaces, without any other delimiter
+     */
+    private static boolean isPhrase(String key) {
+        for (int i=0; i<key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == ' ') {
+                if (i == 0 || i == key.length() - 1 || key.charAt(i - 1) == ' ') {
+                    return false;
+                }
+            } else if (Transliterator.DELIMITERS.indexOf(c) != -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Find the longest phrase starting at the given position
+     *
+     * @param s the text in lower case
+     * @param from the start of a word of the text
+     * @param to the end of the text to search within, which must be at the end of a word or a delimiter
+     * @param value the array to return the translation of the phrase found in, as its first element
+     * @return the end of the phrase found, or -1 if there is none
+     */
+    int match(CharSequence s, int from, int to, String[] value) {
+        Node n = root;
+        int end = -1;
+        int pos = from;
+        while (true) {
+            int wordEnd = endOfWord(s, pos, to);
+            n = n.child(s, pos, wordEnd, false);
+            if (n == null) {
+                return end;
+            }
+            if (n.value != null) {
+                end = wordEnd;
+                value[0] = n.value;
+            }
+            if (wordEnd + 1 >= to || s.charAt(wordEnd) != ' ' || isDelimiter(s.charAt(wordEnd + 1))) {
+                return end;
+            }
+            pos = wordEnd + 1;
+        }
+    }
+
+    /**
+     * @return true if the words from the given position, each followed by a single space up to the end, are the
+     * start of a longer phrase, and hence may not be translated until the following word is known
+     */
+    boolean isPrefix(CharSequence s, int from, int to) {
+        Node n = root;
+        int pos = from;
+        while (pos < to) {
+            int wordEnd = endOfWord(s, pos, to);
+            if (wordEnd == pos || wordEnd == to || s.charAt(wordEnd) != ' ') {
+                return false;
+            }
+            n = n.child(s, pos, wordEnd, false);
+            if (n == null) {
+                return false;
+            }
+            pos = wordEnd + 1;
+        }
+        return pos > from && n.words.length > 0;
+    }
+
+    private static int endOfWord(CharSequence s, int pos, int to) {
+        while (pos < to && !isDelimiter(s.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return Transliterator.DELIMITERS.indexOf(c) != -1;
+    }
+
+    private static final class Node {
+
+        private String[] words = new String[0];
+        private Node[] next = new Node[0];
+        private String value;
+
+        private Node child(CharSequence s, int from, int to, boolean create) {
+            int lo = 0, hi = words.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = compare(words[mid], s, from, to);
+                if (c < 0) {
+                    lo = mid + 1;
+                } else if (c > 0) {
+                    hi = mid - 1;
+                } else {
+                    return next[mid];
+                }
+            }
+            if (!create) {
+                return null;
+            }
+
+            String[] w = new String[words.length + 1];
+            Node[] n = new Node[next.length + 1];
+            System.arraycopy(words, 0, w, 0, lo);
+            System.arraycopy(next, 0, n, 0, lo);
+            System.arraycopy(words, lo, w, lo + 1, words.length - lo);
+            System.arraycopy(next, lo, n, lo + 1, next.length - lo);
+            w[lo] = s.subSequence(from, to).toString();
+            n[lo] = new Node();
+            words = w;
+            next = n;
+            return n[lo];
+        }
+
+        private static int compare(String word, CharSequence s, int from, int to) {
+            int n = Math.min(word.length(), to - from);
+            for (int i=0; i<n; i++) {
+                char c = word.charAt(i);
+                char w = s.charAt(from + i);
+                if (c != w) {
+                    return c - w;
+                }
+            }
+            return word.length() - (to - from);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An index of the words of a dictionary in sorted order, for finding the words starting with a prefix as it is typed.
+ *
+ * The words starting with a prefix form a contiguous range of the sorted words, found by two binary searches. The
+ * completions are the shortest words of the range, i.e. those closest to what has been typed, and those of the same
+ * length in sort order.
+ *
+ * @author asankha
+ */
+final class PrefixIndex {
+
+    private final String[] words;
+    private final String[] values;
+
+    PrefixIndex(Dictionary dictionary) {
+        words = dictionary.keys();
+        Arrays.sort(words);
+        values = new String[words.length];
+        for (int i=0; i<words.length; i++) {
+            values[i] = dictionary.get(words[i]);
+        }
+    }
+
+    /**
+     * Find the words starting with the given prefix
+     *
+     * @param prefix the prefix in lower case
+     * @param limit the maximum number of words to find
+     * @param out the map to add each word found to, with its transliteration, shortest first
+     */
+    void complete(String prefix, int limit, Map<String, String> out) {
+        int from = lowerBound(prefix);
+        int to = endOfPrefix(prefix, from);
+
+        // the indexes of the shortest words of the range so far, kept ordered by length and then by index
+        int[] best = new int[Math.max(0, Math.min(limit, to - from))];
+        int count = 0;
+        for (int i=from; i<to && best.length > 0; i++) {
+            int len = words[i].length();
+            if (count == best.length && len >= words[best[count - 1]].length()) {
+                continue;
+            }
+            int j = count < best.length ? count++ : count - 1;
+            while (j > 0 && words[best[j - 1]].length() > len) {
+                best[j] = best[j - 1];
+                j--;
+            }
+            best[j] = i;
+        }
+
+        for (int i=0; i<count; i++) {
+            out.put(words[best[i]], values[best[i]]);
+        }
+    }
+
+    int size() {
+        return words.length;
+    }
+
+    /**
+     * @return the index of the first word not less than the prefix
+     */
+    private int lowerBound(String prefix) {
+        int lo = 0, hi = words.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (words[mid].compareTo(prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return the index of the first word from the given one that does not start with the prefix
+     */
+    private int endOfPrefix(String prefix, int from) {
+        int lo = from, hi = words.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (words[mid].startsWith(prefix)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
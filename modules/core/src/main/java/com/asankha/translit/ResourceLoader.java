@@ -0,0 +1,250 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Loads the rules and dictionaries from the classpath at com/asankha/translit/resources, or optionally from a
+ * directory, where any file present in the directory takes precedence over the one on the classpath
+ *
+ * @author asankha
+ */
+final class ResourceLoader {
+
+    static final String PREFIX = "com/asankha/translit/resources/";
+
+    private static final String[] CODES = {"en", "si", "ta"};
+
+    /** All the files loaded */
+    static final String[] FILES = {
+        "rules-en.txt", "rules-si.txt", "rules-ta.txt",
+        "phonetic-en.txt", "phonetic-si.txt", "phonetic-ta.txt",
+        "en-to-si.txt", "en-to-ta.txt", "si-to-ta.txt"
+    };
+
+    private final ClassLoader classLoader;
+    private final File dir;
+
+    ResourceLoader(ClassLoader classLoader, File dir) {
+        this.classLoader = classLoader;
+        this.dir = dir;
+    }
+
+    /**
+     * @return the two letter code of the language, as used in the resource file names
+     */
+    static String code(int lang) {
+        return CODES[lang];
+    }
+
+    /**
+     * @return the name of the mapping file holding the dictionary for the language pair, which is named after the
+     * lower numbered language first (i.e. en-to-si.txt, en-to-ta.txt and si-to-ta.txt)
+     */
+    static String mappingFile(int src, int dst) {
+        return code(Math.min(src, dst)) + "-to-" + code(Math.max(src, dst)) + ".txt";
+    }
+
+    InputStream open(String filename) throws IOException {
+        if (dir != null) {
+            File f = new File(dir, filename);
+            if (f.isFile()) {
+                return new FileInputStream(f);
+            }
+        }
+        InputStream in = classLoader.getResourceAsStream(PREFIX + filename);
+        if (in == null) {
+            throw new FileNotFoundException("Cannot find resource : " + PREFIX + filename);
+        }
+        return in;
+    }
+
+    // use the rule matchers generated at build time, unless the rules files have been overridden since
+    RuleSet<LangToPhonetic> loadLangToPhonetic(int lang) throws IOException {
+        String filename = "rules-" + code(lang) + ".txt";
+        switch (lang) {
+            case Transliterate.ENGLISH:
+                if (isUnchanged(filename, CompiledRulesEn.CHECKSUM)) {
+                    return new CompiledRulesEn();
+                }
+                break;
+            case Transliterate.SINHALA:
+                if (isUnchanged(filename, CompiledRulesSi.CHECKSUM)) {
+                    return new CompiledRulesSi();
+                }
+                break;
+            case Transliterate.TAMIL:
+                if (isUnchanged(filename, CompiledRulesTa.CHECKSUM)) {
+                    return new CompiledRulesTa();
+                }
+                break;
+        }
+        return loadLangToPhoneticFile(filename);
+    }
+
+    RuleSet<PhoneticToLang> loadPhoneticToLang(int lang) throws IOException {
+        String filename = "phonetic-" + code(lang) + ".txt";
+        switch (lang) {
+            case Transliterate.ENGLISH:
+                if (isUnchanged(filename, CompiledPhoneticEn.CHECKSUM)) {
+                    return new CompiledPhoneticEn();
+                }
+                break;
+            case Transliterate.SINHALA:
+                if (isUnchanged(filename, CompiledPhoneticSi.CHECKSUM)) {
+                    return new CompiledPhoneticSi();
+                }
+                break;
+            case Transliterate.TAMIL:
+                if (isUnchanged(filename, CompiledPhoneticTa.CHECKSUM)) {
+                    return new CompiledPhoneticTa();
+                }
+                break;
+        }
+        return loadPhoneticToLangFile(filename);
+    }
+
+    private RuleSet<LangToPhonetic> loadLangToPhoneticFile(String filename) throws IOException {
+        DataInputStream in = new DataInputStream(open(filename));
+        BufferedReader br = new BufferedReader(new InputStreamReader(in));
+
+        String s;
+        List<LangToPhonetic> list = new ArrayList<LangToPhonetic>();
+        try {
+            while ((s = br.readLine()) != null) {
+                String[] p = s.split(",");
+                try {
+                    list.add(new LangToPhonetic(p[2].replaceAll("%", ".*"), p[0], p[3], p[4].replaceAll("%", "")));
+                } catch (RuntimeException e) {
+                    throw invalidLine(filename, list.size() + 1, s, e);
+                }
+            }
+        } finally {
+            in.close();
+        }
+
+        LangToPhonetic[] rules = list.toArray(new LangToPhonetic[list.size()]);
+        String[] regex = new String[rules.length];
+        for (int i=0; i<rules.length; i++) {
+            regex[i] = rules[i].getRule();
+        }
+        return new RuleTrie<LangToPhonetic>(rules, regex);
+    }
+
+    private RuleSet<PhoneticToLang> loadPhoneticToLangFile(String filename) throws IOException {
+        DataInputStream in = new DataInputStream(open(filename));
+        BufferedReader br = new BufferedReader(new InputStreamReader(in));
+
+        String s;
+        List<PhoneticToLang> list = new ArrayList<PhoneticToLang>();
+        try {
+            while ((s = br.readLine()) != null) {
+                String[] p = s.split(",");
+                try {
+                    list.add(new PhoneticToLang(p[0].replaceAll("\\.", "\\\\.").replaceAll("%", ".*"), p[1].replaceAll("%", ""), p[2]));
+                } catch (RuntimeException e) {
+                    throw invalidLine(filename, list.size() + 1, s, e);
+                }
+            }
+        } finally {
+            in.close();
+        }
+
+        PhoneticToLang[] rules = list.toArray(new PhoneticToLang[list.size()]);
+        String[] regex = new String[rules.length];
+        for (int i=0; i<rules.length; i++) {
+            regex[i] = rules[i].getRule();
+        }
+        return new RuleTrie<PhoneticToLang>(rules, regex);
+    }
+
+    private boolean isUnchanged(String filename, long checksum) throws IOException {
+        return checksum(filename) == checksum;
+    }
+
+    /**
+     * @return the CRC32 of the file that would be loaded
+     */
+    long checksum(String filename) throws IOException {
+        InputStream in = open(filename);
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[8192];
+        int len;
+        try {
+            while ((len = in.read(buf)) != -1) {
+                crc.update(buf, 0, len);
+            }
+        } finally {
+            in.close();
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Load a mapping file into the maps for either direction. The maps for a direction that is not required may be
+     * passed as null
+     */
+    void loadMappingFile(String filename,
+        Map<String, String> namesOne, Map<String, String> otherOne,
+        Map<String, String> namesTwo, Map<String, String> otherTwo) throws IOException {
+
+        DataInputStream in = new DataInputStream(open(filename));
+        BufferedReader br = new BufferedReader(new InputStreamReader(in));
+
+        String s;
+        int line = 0;
+        try {
+            while ((s = br.readLine()) != null) {
+                line++;
+                String[] p = s.toLowerCase().split(",");
+                if (p.length < 4) {
+                    throw invalidLine(filename, line, s, null);
+                }
+                if ("1".equals(p[2]) || "1".equals(p[3])) {
+                    // this is a person name
+                    if (namesOne != null && !namesOne.containsKey(p[0])) {
+                        namesOne.put(p[0], p[1]);
+                    }
+                    if (namesTwo != null && !namesTwo.containsKey(p[1])) {
+                        namesTwo.put(p[1], p[0]);
+                    }
+                } else {
+                    if (otherOne != null && !otherOne.containsKey(p[0])) {
+                        otherOne.put(p[0], p[1]);
+                    }
+                    if (otherTwo != null && !otherTwo.containsKey(p[1])) {
+                        otherTwo.put(p[1], p[0]);
+                    }
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static IOException invalidLine(String filename, int line, String s, RuntimeException cause) {
+        IOException e = new IOException("Invalid line " + line + " in " + filename + " : " + s);
+        e.initCause(cause);
+        return e;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A size bounded, thread safe cache of the results of the phonetic rules for words not found in the dictionaries.
+ *
+ * The cache is split into segments by the hash of the word, each being an LRU map guarded by its own lock, so that
+ * threads looking up different words seldom contend. The statistics are kept per segment under the same lock, and
+ * summed up when read.
+ *
+ * @author asankha
+ */
+public final class ResultCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int capacity;
+
+    /**
+     * @param capacity the maximum number of results to hold
+     */
+    public ResultCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive : " + capacity);
+        }
+        this.capacity = capacity;
+
+        int count = 1;
+        while (count < MAX_SEGMENTS && count * 2 <= capacity) {
+            count *= 2;
+        }
+        segments = new Segment[count];
+        for (int i=0; i<count; i++) {
+            // spread any remainder over the first segments, so that the capacities add up exactly
+            segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+    }
+
+    String get(String word, int gender) {
+        Key key = new Key(word, gender);
+        Segment seg = segmentFor(key);
+        synchronized (seg) {
+            String result = seg.get(key);
+            if (result != null) {
+                seg.hits++;
+            } else {
+                seg.misses++;
+            }
+            return result;
+        }
+    }
+
+    void put(String word, int gender, String result) {
+        Key key = new Key(word, gender);
+        Segment seg = segmentFor(key);
+        synchronized (seg) {
+            seg.put(key, result);
+        }
+    }
+
+    private Segment segmentFor(Key key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                size += seg.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        long count = 0;
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                count += seg.hits;
+            }
+        }
+        return count;
+    }
+
+    public long getMissCount() {
+        long count = 0;
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                count += seg.misses;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the ratio of hits to lookups, or 0 if there have been no lookups
+     */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getEvictionCount() {
+        long count = 0;
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                count += seg.evictions;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Remove all cached results. The statistics are not reset
+     */
+    public void clear() {
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                seg.clear();
+            }
+        }
+    }
+
+    public String toString() {
+        return "ResultCache[size=" + size() + ", capacity=" + capacity + ", hits=" + getHitCount() +
+            ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+    }
+
+    /**
+     * An LRU map of a part of the cache, with its statistics
+     */
+    private static final class Segment {
+
+        private final LinkedHashMap<Key, String> map = new LinkedHashMap<Key, String>(16, 0.75f, true);
+        private final int maxSize;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        private Segment(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private String get(Key key) {
+            return map.get(key);
+        }
+
+        private void put(Key key, String result) {
+            map.put(key, result);
+            if (map.size() > maxSize) {
+                Iterator<Key> eldest = map.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                evictions++;
+            }
+        }
+
+        private int size() {
+            return map.size();
+        }
+
+        private void clear() {
+            map.clear();
+        }
+    }
+
+    private static final class Key {
+
+        private final String word;
+        private final int gender;
+
+        private Key(String word, int gender) {
+            this.word = word;
+            this.gender = gender;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return gender == k.gender && word.equals(k.word);
+        }
+
+        public int hashCode() {
+            return word.hashCode() * 31 + gender;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+/**
+ * An ordered set of phonetic rules, together with the means to find the rules that match the remainder of a word
+ * at a given position. The rules bundled with the engine are compiled into specialized subclasses at build time
+ * (see translit-codegen), while rules read from the classpath at runtime are matched through a RuleTrie
+ *
+ * @author asankha
+ */
+abstract class RuleSet<T> {
+
+    private final T[] rules;
+
+    protected RuleSet(T[] rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * @return the number of rules, which is also the maximum number of candidates match() could return
+     */
+    final int size() {
+        return rules.length;
+    }
+
+    final T get(int index) {
+        return rules[index];
+    }
+
+    /**
+     * Find the rules that match s[from..] in its entirety, i.e. as String.matches() would on s.substring(from)
+     *
+     * @param s the input
+     * @param from the start position within the input
+     * @param candidates a buffer of at least size() elements to receive the indexes of the matching rules
+     * @return the number of matching rules placed into the buffer, in ascending rule order
+     */
+    abstract int match(CharSequence s, int from, int[] candidates);
+}
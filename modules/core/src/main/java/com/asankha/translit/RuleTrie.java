@@ -0,0 +1,229 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+/**
+ * A prefix trie compiled once from the regular expressions of an ordered array of rules, which finds every rule that
+ * would match the remainder of a word at a given position, without compiling or executing a regex per step.
+ *
+ * The rules files only produce anchored literal prefixes, i.e. "abc" followed by an optional ".*" (from the '%'
+ * suffix) with '.' characters escaped as "\\.". Such rules are placed on the trie, and a walk along the input yields
+ * all of them that match in a single pass. Any rule that is not of this simple form (e.g. from a custom rules file
+ * placed on the classpath) is kept aside and evaluated with String.matches() as before, so that the result is always
+ * identical to trying each rule in turn.
+ *
+ * Candidates are returned in ascending rule order, so that the caller can apply its own filters (e.g. gender) and
+ * still honour first-match-wins priority
+ *
+ * @author asankha
+ */
+final class RuleTrie<T> extends RuleSet<T> {
+
+    /** The characters at which the regex '.' would not match, and hence where a ".*" suffix stops matching */
+    static final String LINE_TERMINATORS = "\n\r\u0085\u2028\u2029";
+
+    private final Node root = new Node();
+    private final int[] irregular;
+    private final String[] irregularRules;
+
+    RuleTrie(T[] values, String[] rules) {
+        super(values);
+        int[] irr = new int[rules.length];
+        int irrCount = 0;
+
+        for (int i=0; i<rules.length; i++) {
+            String rule = rules[i];
+            boolean open = rule.endsWith(".*");
+            String literal = unescape(open ? rule.substring(0, rule.length() - 2) : rule);
+            if (literal == null) {
+                irr[irrCount++] = i;
+            } else {
+                Node n = root;
+                for (int j=0; j<literal.length(); j++) {
+                    n = n.child(literal.charAt(j), true);
+                }
+                if (open) {
+                    n.open = append(n.open, i);
+                } else {
+                    n.exact = append(n.exact, i);
+                }
+            }
+        }
+
+        irregular = new int[irrCount];
+        irregularRules = new String[irrCount];
+        for (int i=0; i<irrCount; i++) {
+            irregular[i] = irr[i];
+            irregularRules[i] = rules[irr[i]];
+        }
+    }
+
+    int match(CharSequence s, int from, int[] candidates) {
+
+        final int len = s.length();
+        final int lastTerminator = lastTerminator(s, from);
+
+        int count = 0;
+        Node n = root;
+        int pos = from;
+        while (n != null) {
+            if (n.open != null && pos > lastTerminator) {
+                for (int r : n.open) {
+                    count = insert(candidates, count, r);
+                }
+            }
+            if (n.exact != null && pos == len) {
+                for (int r : n.exact) {
+                    count = insert(candidates, count, r);
+                }
+            }
+            if (pos == len) {
+                break;
+            }
+            n = n.child(s.charAt(pos++), false);
+        }
+
+        if (irregular.length > 0) {
+            String rest = s.subSequence(from, len).toString();
+            for (int i=0; i<irregular.length; i++) {
+                if (rest.matches(irregularRules[i])) {
+                    count = insert(candidates, count, irregular[i]);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A ".*" suffix matches only if no line terminator follows the literal prefix, i.e. if the prefix ends after the
+     * position returned here
+     *
+     * @return the position of the last line terminator at or after from, or -1 if there is none
+     */
+    static int lastTerminator(CharSequence s, int from) {
+        for (int i=s.length()-1; i>=from; i--) {
+            if (LINE_TERMINATORS.indexOf(s.charAt(i)) != -1) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param rule the regex of a rule
+     * @param length the number of characters a match of the rule consumes
+     * @return the number of characters from a position on which a match of the rule there, and the characters it
+     * consumes, depend if the text holds no line terminators, or Integer.MAX_VALUE if the rule is not a literal prefix
+     */
+    static int lookahead(String rule, int length) {
+        boolean open = rule.endsWith(".*");
+        String literal = unescape(open ? rule.substring(0, rule.length() - 2) : rule);
+        if (literal == null) {
+            return Integer.MAX_VALUE;
+        }
+        // an exact rule also depends on whether the text ends after the literal
+        return Math.max(open ? literal.length() : literal.length() + 1, length);
+    }
+
+    /** Insertion into the small sorted candidate buffer */
+    static int insert(int[] a, int count, int r) {
+        int i = count;
+        while (i > 0 && a[i-1] > r) {
+            a[i] = a[i-1];
+            i--;
+        }
+        a[i] = r;
+        return count + 1;
+    }
+
+    private static int[] append(int[] a, int r) {
+        if (a == null) {
+            return new int[] {r};
+        }
+        int[] b = new int[a.length + 1];
+        System.arraycopy(a, 0, b, 0, a.length);
+        b[a.length] = r;
+        return b;
+    }
+
+    /**
+     * @return the literal text matched by the given regex, or null if it contains anything other than literal
+     * characters and escaped '.'s
+     */
+    private static String unescape(String regex) {
+        StringBuilder sb = new StringBuilder(regex.length());
+        for (int i=0; i<regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i+1 < regex.length() && regex.charAt(i+1) == '.') {
+                    sb.append('.');
+                    i++;
+                } else {
+                    return null;
+                }
+            } else if ("[](){}.*+?^$|".indexOf(c) != -1) {
+                return null;
+            } else {
+                sb.append(c);
+            }
+        }
+        // the regex engine matches by code point, so leave any surrogate pairs to it
+        String literal = sb.toString();
+        if (literal.length() != literal.codePointCount(0, literal.length())) {
+            return null;
+        }
+        return literal;
+    }
+
+    private static final class Node {
+
+        private char[] keys = new char[0];
+        private Node[] next = new Node[0];
+        private int[] open;
+        private int[] exact;
+
+        private Node child(char c, boolean create) {
+            int lo = 0, hi = keys.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < c) {
+                    lo = mid + 1;
+                } else if (keys[mid] > c) {
+                    hi = mid - 1;
+                } else {
+                    return next[mid];
+                }
+            }
+            if (!create) {
+                return null;
+            }
+
+            char[] k = new char[keys.length + 1];
+            Node[] n = new Node[next.length + 1];
+            System.arraycopy(keys, 0, k, 0, lo);
+            System.arraycopy(next, 0, n, 0, lo);
+            System.arraycopy(keys, lo, k, lo + 1, keys.length - lo);
+            System.arraycopy(next, lo, n, lo + 1, next.length - lo);
+            k[lo] = c;
+            n[lo] = new Node();
+            keys = k;
+            next = n;
+            return n[lo];
+        }
+    }
+}
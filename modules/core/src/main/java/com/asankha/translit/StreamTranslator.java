@@ -0,0 +1,153 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+/**
+ * Translates text fed to it in pieces of any size, as translateLine() would translate each of its lines, for the
+ * streaming Reader and Writer.
+ *
+ * The text is split into words at the delimiters of translateLine() as it arrives, and is translated up to the last
+ * delimiter seen, so that a word split across two pieces is translated as one. Words that may be the start of a
+ * phrase of the dictionary are held until the phrase is complete or cannot be. Lines end at '\n' or '\r', and a
+ * line of a single character is translated as a word, as by translateLine(). To bound the memory used, a word longer
+ * than MAX_WORD_LENGTH characters is translated in pieces of that length.
+ *
+ * @author asankha
+ */
+final class StreamTranslator {
+
+    static final int MAX_WORD_LENGTH = 4096;
+
+    private final Transliterator transliterator;
+    private final int gender;
+    private final PhraseTrie phrases;
+    /** The word in progress */
+    private final StringBuilder word = new StringBuilder();
+    private final StringBuilder lowerCase = new StringBuilder();
+    /** The rest of the line not yet translated, in lower case, which ends at a delimiter */
+    private final StringBuilder pending = new StringBuilder();
+    private final String[] phrase = new String[1];
+    /** true once any of the current line has been translated */
+    private boolean lineStarted;
+
+    StreamTranslator(Transliterator transliterator, int gender) {
+        this.transliterator = transliterator;
+        this.gender = gender;
+        this.phrases = transliterator.getPhrases(gender);
+    }
+
+    /**
+     * Translate the given characters into the buffer, except for the word in progress at the end, and any words
+     * which may be the start of a phrase
+     */
+    void append(char[] cbuf, int off, int len, StringBuilder out) {
+        for (int i=off; i<off+len; i++) {
+            char c = cbuf[i];
+            if (c == '\n' || c == '\r') {
+                endLine(out);
+                out.append(c);
+            } else if (Transliterator.DELIMITERS.indexOf(c) != -1) {
+                endWord();
+                pending.append(c);
+                translatePending(c != ' ', out);
+            } else {
+                word.append(c);
+                if (word.length() == MAX_WORD_LENGTH) {
+                    // the line is longer than a character, so any delimiter pending before the word goes out first
+                    lineStarted = true;
+                    translatePending(true, out);
+                    Transliterator.toLowerCase(word, lowerCase);
+                    transliterator.translateWord(lowerCase, gender, out);
+                    word.setLength(0);
+                    lineStarted = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Translate the rest of the text into the buffer
+     */
+    void finish(StringBuilder out) {
+        endLine(out);
+    }
+
+    private void endLine(StringBuilder out) {
+        endWord();
+        if (!lineStarted && pending.length() == 1) {
+            transliterator.translateWord(pending, gender, out);
+            pending.setLength(0);
+        } else {
+            translatePending(true, out);
+        }
+        lineStarted = false;
+    }
+
+    private void endWord() {
+        if (word.length() > 0) {
+            pending.append(Transliterator.toLowerCase(word, lowerCase));
+            word.setLength(0);
+        }
+    }
+
+    /**
+     * Translate the pending text, or only up to the words at its end which may be the start of a phrase
+     */
+    private void translatePending(boolean all, StringBuilder out) {
+        final int len = pending.length();
+        if (len == 0 || (!lineStarted && len == 1)) {
+            // a line of a single character is translated as a word, and so must be seen to end first
+            return;
+        }
+
+        int end = len;
+        if (!all && phrases != null) {
+            // translate the longest phrase or else the word at each word in turn, until the words left may be the
+            // start of a phrase
+            end = 0;
+            while (true) {
+                int start = skipDelimiters(end);
+                if (start == len || phrases.isPrefix(pending, start, len)) {
+                    end = start;
+                    break;
+                }
+                end = phrases.match(pending, start, len, phrase);
+                if (end == -1) {
+                    end = start;
+                    while (Transliterator.DELIMITERS.indexOf(pending.charAt(end)) == -1) {
+                        end++;
+                    }
+                }
+                end = skipDelimiters(end);
+            }
+        }
+
+        if (end > 0) {
+            transliterator.translateTokens(end == len ? pending : pending.subSequence(0, end), gender, out);
+            pending.delete(0, end);
+            lineStarted = true;
+        }
+    }
+
+    private int skipDelimiters(int i) {
+        while (i < pending.length() && Transliterator.DELIMITERS.indexOf(pending.charAt(i)) != -1) {
+            i++;
+        }
+        return i;
+    }
+}
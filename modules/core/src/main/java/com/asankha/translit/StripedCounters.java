@@ -0,0 +1,91 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed group of counters that many threads may update without contending, in the manner of a LongAdder.
+ *
+ * Each thread updates its own stripe of the counters, chosen by its id, and the stripes are summed up when read. The
+ * stripes are padded apart, so that threads updating different stripes do not share a cache line.
+ *
+ * @author asankha
+ */
+final class StripedCounters {
+
+    private static final int STRIPES = 16;
+    /** The number of longs in a cache line of 64 bytes */
+    private static final int PAD = 8;
+
+    private final int count;
+    private final int stride;
+    private final AtomicLongArray cells;
+
+    /**
+     * @param count the number of counters
+     */
+    StripedCounters(int count) {
+        this.count = count;
+        this.stride = (count + PAD - 1) / PAD * PAD;
+        this.cells = new AtomicLongArray(STRIPES * stride);
+    }
+
+    void increment(int counter) {
+        add(counter, 1);
+    }
+
+    void add(int counter, long delta) {
+        cells.getAndAdd(stripe() + counter, delta);
+    }
+
+    long get(int counter) {
+        long sum = 0;
+        for (int i=0; i<STRIPES; i++) {
+            sum += cells.get(i * stride + counter);
+        }
+        return sum;
+    }
+
+    /**
+     * @return the sums of all counters
+     */
+    long[] get() {
+        long[] sums = new long[count];
+        for (int i=0; i<sums.length; i++) {
+            sums[i] = get(i);
+        }
+        return sums;
+    }
+
+    /**
+     * Reset all counters to zero. Updates made concurrently may or may not be lost
+     */
+    void reset() {
+        for (int i=0; i<cells.length(); i++) {
+            cells.set(i, 0);
+        }
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32));
+        h ^= (h >>> 4);
+        return (h & (STRIPES - 1)) * stride;
+    }
+}
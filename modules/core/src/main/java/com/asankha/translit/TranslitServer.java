@@ -0,0 +1,503 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * An embedded HTTP server that keeps the shared transliterators of Transliterate loaded, for applications that
+ * cannot call the library directly, built on the HTTP server of the JDK without any other dependencies.
+ *
+ * GET or POST /translate?src=en&dst=si&gender=m&text=asankha+perera
+ *      translates one line, given by the text parameter or as the request body, and returns it as text/plain
+ * POST /batch?src=en&dst=si&gender=m
+ *      translates the lines of the request body, each distinct word only once. The lines may be given one per line,
+ *      and are returned the same way, or as a JSON array of strings (with the application/json content type, or a
+ *      body starting with '['), in which case a JSON array is returned
+ * GET /complete?src=en&dst=si&gender=m&prefix=pere&limit=10
+ *      returns up to limit (10 by default, and at most 100) dictionary words starting with the prefix, shortest first,
+ *      as a JSON object of each word to its transliteration
+ * GET /stats
+ *      returns the number of requests, errors and lines translated, the request rate and latency percentiles as JSON
+ *
+ * The parameters src and dst are one of en, si or ta (defaulting to en and si) and gender is one of m, f or u
+ * (defaulting to u), as on the command line. All text is UTF-8, and a request body may be up to 1MB. Requests are
+ * served on virtual threads where the JVM supports them (Java 21 or later), else on a pool of threads.
+ *
+ * e.g.
+ * $java -jar translit-core-1.0.0.jar -p 8080
+ * $curl 'http://localhost:8080/translate?gender=m&text=asankha+perera'
+ *
+ * @author asankha
+ */
+public final class TranslitServer {
+
+    private static final String[] LANGUAGES = {"en", "si", "ta"};
+    private static final String[] GENDERS = {"u", "m", "f"};
+
+    private static final int REQUESTS = 0;
+    private static final int ERRORS = 1;
+    private static final int LINES = 2;
+
+    /** The number of words returned by /complete when no limit is given */
+    private static final int DEFAULT_COMPLETIONS = 10;
+    /** The most words returned by /complete, as the cost of a request grows with the limit */
+    private static final int MAX_COMPLETIONS = 100;
+    /** The largest request body accepted, in bytes */
+    private static final int MAX_BODY = 1024 * 1024;
+
+    /** Executors.newVirtualThreadPerTaskExecutor() of Java 21 or later, or null if the JVM does not support it */
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final StripedCounters counters = new StripedCounters(3);
+    private final StripedCounters latency = new StripedCounters(Metrics.LATENCY_BUCKETS);
+    private long started;
+
+    /**
+     * Create a server listening on the given port, which is started with start()
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public TranslitServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = newExecutor();
+        server.setExecutor(executor);
+
+        server.createContext("/translate", new Handler() {
+            String respond(HttpExchange ex, Map<String, String> params) throws IOException {
+                String text = params.get("text");
+                if (text == null) {
+                    checkMethod(ex, "POST");
+                    text = readBody(ex);
+                }
+                counters.increment(LINES);
+                return transliterator(params).translateLine(text, gender(params));
+            }
+        });
+        server.createContext("/batch", new Handler() {
+            String respond(HttpExchange ex, Map<String, String> params) throws IOException {
+                checkMethod(ex, "POST");
+                String body = readBody(ex);
+                String type = ex.getRequestHeaders().getFirst("Content-Type");
+                boolean json = (type != null && type.startsWith("application/json")) || body.trim().startsWith("[");
+
+                String[] lines = json ? Json.parseStringArray(body) : splitLines(body);
+                String[] result = transliterator(params).translateLines(lines, gender(params));
+                counters.add(LINES, lines.length);
+
+                if (json) {
+                    ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                    return Json.toStringArray(result);
+                }
+                StringBuilder sb = new StringBuilder();
+                for (String s : result) {
+                    sb.append(s).append('\n');
+                }
+                return sb.toString();
+            }
+        });
+        server.createContext("/complete", new Handler() {
+            String respond(HttpExchange ex, Map<String, String> params) {
+                String prefix = params.get("prefix");
+                if (prefix == null) {
+                    throw new IllegalArgumentException("The prefix parameter is required");
+                }
+                int limit = DEFAULT_COMPLETIONS;
+                if (params.containsKey("limit")) {
+                    try {
+                        limit = Integer.parseInt(params.get("limit"));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid limit : " + params.get("limit"));
+                    }
+                    if (limit <= 0) {
+                        throw new IllegalArgumentException("Invalid limit : " + limit);
+                    }
+                    limit = Math.min(limit, MAX_COMPLETIONS);
+                }
+                ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                return Json.toStringObject(transliterator(params).complete(prefix, gender(params), limit));
+            }
+        });
+        server.createContext("/stats", new Handler() {
+            String respond(HttpExchange ex, Map<String, String> params) {
+                ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                return stats();
+            }
+        });
+    }
+
+    /**
+     * Load all language pairs, and start serving requests
+     *
+     * @throws IOException on a failure to load any language pair
+     */
+    public void start() throws IOException {
+        Transliterate.preload();
+        started = System.currentTimeMillis();
+        server.start();
+    }
+
+    /**
+     * Stop serving requests, allowing those in progress up to the given time to complete
+     *
+     * @param delaySeconds the maximum time to wait for requests in progress
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * @return the port the server is listening on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the statistics of the requests served, as JSON
+     */
+    public String stats() {
+        long[] c = counters.get();
+        long[] histogram = latency.get();
+        double seconds = Math.max(System.currentTimeMillis() - started, 1) / 1000d;
+        return "{\"uptimeSeconds\":" + (long) seconds +
+            ",\"requests\":" + c[REQUESTS] +
+            ",\"errors\":" + c[ERRORS] +
+            ",\"lines\":" + c[LINES] +
+            ",\"requestsPerSecond\":" + Math.round(c[REQUESTS] / seconds * 100) / 100d +
+            ",\"latency50thPercentileMicros\":" + Metrics.latencyPercentile(histogram, 50) / 1000 +
+            ",\"latency99thPercentileMicros\":" + Metrics.latencyPercentile(histogram, 99) / 1000 +
+            ",\"virtualThreads\":" + (NEW_VIRTUAL_THREAD_EXECUTOR != null) + "}";
+    }
+
+    private static Method findVirtualThreadExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return an executor running each task on a new virtual thread if the JVM supports them, else a thread pool
+     */
+    private static ExecutorService newExecutor() {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+            } catch (Exception e) {
+                System.out.println("Error creating a virtual thread executor : " + e.getMessage());
+            }
+        }
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            private int count;
+
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "translit-http-" + (++count));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    private static Transliterator transliterator(Map<String, String> params) {
+        int src = indexOf(LANGUAGES, params, "src", Transliterate.ENGLISH);
+        int dst = indexOf(LANGUAGES, params, "dst", Transliterate.SINHALA);
+        if (!Transliterator.isValidLanguagePair(src, dst)) {
+            throw new IllegalArgumentException("Invalid language pair : " + LANGUAGES[src] + " to " + LANGUAGES[dst]);
+        }
+        return Transliterate.getTransliterator(src, dst);
+    }
+
+    private static int gender(Map<String, String> params) {
+        return indexOf(GENDERS, params, "gender", Transliterate.UNKNOWN);
+    }
+
+    private static int indexOf(String[] values, Map<String, String> params, String name, int def) {
+        String value = params.get(name);
+        if (value == null) {
+            return def;
+        }
+        for (int i=0; i<values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Invalid " + name + " : " + value);
+    }
+
+    private static void checkMethod(HttpExchange ex, String method) {
+        if (!method.equals(ex.getRequestMethod())) {
+            throw new HttpError(405, method + " required");
+        }
+    }
+
+    private static String readBody(HttpExchange ex) throws IOException {
+        InputStream in = ex.getRequestBody();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            if (bytes.size() + n > MAX_BODY) {
+                throw new HttpError(413, "The request body exceeds " + MAX_BODY + " bytes");
+            }
+            bytes.write(buf, 0, n);
+        }
+        return bytes.toString("UTF-8");
+    }
+
+    /**
+     * @return the lines of the text, ignoring a final line terminator
+     */
+    private static String[] splitLines(String s) {
+        List<String> lines = new ArrayList<String>();
+        int start = 0;
+        while (start < s.length()) {
+            int end = s.indexOf('\n', start);
+            if (end == -1) {
+                end = s.length();
+            }
+            lines.add(s.substring(start, end > start && s.charAt(end - 1) == '\r' ? end - 1 : end));
+            start = end + 1;
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<String, String>();
+        if (query != null) {
+            for (String p : query.split("&")) {
+                int eq = p.indexOf('=');
+                if (eq > 0) {
+                    params.put(URLDecoder.decode(p.substring(0, eq), "UTF-8"),
+                        URLDecoder.decode(p.substring(eq + 1), "UTF-8"));
+                }
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Records the statistics of each request, and reports errors with the corresponding HTTP status
+     */
+    private abstract class Handler implements HttpHandler {
+
+        abstract String respond(HttpExchange ex, Map<String, String> params) throws IOException;
+
+        public void handle(HttpExchange ex) throws IOException {
+            final long start = System.nanoTime();
+            counters.increment(REQUESTS);
+            int status = 200;
+            String response;
+            try {
+                ex.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+                response = respond(ex, parseQuery(ex.getRequestURI().getRawQuery()));
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                response = e.getMessage() + "\n";
+            } catch (HttpError e) {
+                status = e.status;
+                response = e.getMessage() + "\n";
+            } catch (Exception e) {
+                status = 500;
+                response = "Error : " + e.getMessage() + "\n";
+            }
+            if (status != 200) {
+                counters.increment(ERRORS);
+                ex.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+            }
+
+            try {
+                byte[] bytes = response.getBytes("UTF-8");
+                ex.sendResponseHeaders(status, bytes.length);
+                OutputStream out = ex.getResponseBody();
+                out.write(bytes);
+                out.close();
+            } finally {
+                ex.close();
+                latency.increment(Metrics.latencyBucket(System.nanoTime() - start));
+            }
+        }
+    }
+
+    /**
+     * A failure of a request to be reported with the given HTTP status
+     */
+    private static final class HttpError extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        private HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Just enough JSON for arrays and objects of strings
+     */
+    static final class Json {
+
+        private Json() {}
+
+        static String[] parseStringArray(String s) {
+            List<String> values = new ArrayList<String>();
+            int[] pos = {skipSpace(s, 0)};
+            expect(s, pos, '[');
+            if (peek(s, pos) == ']') {
+                pos[0]++;
+            } else {
+                while (true) {
+                    values.add(parseString(s, pos));
+                    char c = peek(s, pos);
+                    pos[0]++;
+                    if (c == ']') {
+                        break;
+                    } else if (c != ',') {
+                        throw new IllegalArgumentException("Expected ',' or ']' at " + (pos[0] - 1));
+                    }
+                }
+            }
+            if (skipSpace(s, pos[0]) != s.length()) {
+                throw new IllegalArgumentException("Unexpected content after the array at " + pos[0]);
+            }
+            return values.toArray(new String[values.size()]);
+        }
+
+        private static String parseString(String s, int[] pos) {
+            expect(s, pos, '"');
+            StringBuilder sb = new StringBuilder();
+            int i = pos[0];
+            while (true) {
+                if (i >= s.length()) {
+                    throw new IllegalArgumentException("Unterminated string");
+                }
+                char c = s.charAt(i++);
+                if (c == '"') {
+                    break;
+                } else if (c == '\\') {
+                    if (i >= s.length()) {
+                        throw new IllegalArgumentException("Unterminated string");
+                    }
+                    char e = s.charAt(i++);
+                    switch (e) {
+                        case '"': case '\\': case '/': sb.append(e); break;
+                        case 'b': sb.append('\b'); break;
+                        case 'f': sb.append('\f'); break;
+                        case 'n': sb.append('\n'); break;
+                        case 'r': sb.append('\r'); break;
+                        case 't': sb.append('\t'); break;
+                        case 'u':
+                            if (i + 4 > s.length()) {
+                                throw new IllegalArgumentException("Invalid unicode escape at " + i);
+                            }
+                            try {
+                                sb.append((char) Integer.parseInt(s.substring(i, i + 4), 16));
+                            } catch (NumberFormatException x) {
+                                throw new IllegalArgumentException("Invalid unicode escape at " + i);
+                            }
+                            i += 4;
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Invalid escape at " + (i - 1));
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+            pos[0] = i;
+            return sb.toString();
+        }
+
+        private static void expect(String s, int[] pos, char c) {
+            if (peek(s, pos) != c) {
+                throw new IllegalArgumentException("Expected '" + c + "' at " + pos[0]);
+            }
+            pos[0]++;
+        }
+
+        /** Skips any white space, and returns the next character, or 0 at the end */
+        private static char peek(String s, int[] pos) {
+            pos[0] = skipSpace(s, pos[0]);
+            return pos[0] < s.length() ? s.charAt(pos[0]) : 0;
+        }
+
+        private static int skipSpace(String s, int i) {
+            while (i < s.length() && " \t\r\n".indexOf(s.charAt(i)) != -1) {
+                i++;
+            }
+            return i;
+        }
+
+        static String toStringArray(String[] values) {
+            StringBuilder sb = new StringBuilder("[");
+            for (int i=0; i<values.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                quote(values[i], sb);
+            }
+            return sb.append(']').toString();
+        }
+
+        static String toStringObject(Map<String, String> values) {
+            StringBuilder sb = new StringBuilder("{");
+            for (Map.Entry<String, String> e : values.entrySet()) {
+                if (sb.length() > 1) {
+                    sb.append(',');
+                }
+                quote(e.getKey(), sb);
+                sb.append(':');
+                quote(e.getValue(), sb);
+            }
+            return sb.append('}').toString();
+        }
+
+        private static void quote(String v, StringBuilder sb) {
+            sb.append('"');
+            for (int i=0; i<v.length(); i++) {
+                char c = v.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+    }
+}
@@ -17,10 +17,16 @@
  */
 package com.asankha.translit;
 
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.InputStreamReader;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implemented my own Transliterator re-using rules from the ICTA transliterator which had severe code/architectural
@@ -34,6 +40,55 @@ import java.util.*;
  * update of rules is possible by placing updated rules files on the classpath com/asankha/translit/resources
  * followed by a restart.
  *
+ * Alternatively, the rules and dictionaries may be read from a directory specified with -Dtranslit.dir (any file not
+ * found there is read from the classpath), and reloaded without a restart by calling reload(), or automatically when
+ * a file changes by calling startWatching(). A reload builds a complete new set of engines before swapping them in
+ * atomically, so that translations in progress are never affected, and translations never take a lock.
+ *
+ * The results of the phonetic rules for words not found in the dictionaries may be cached by specifying the maximum
+ * number of words to cache per language pair with -Dtranslit.cacheSize - see getTransliterator().getCache() for the
+ * cache statistics
+ *
+ * To reduce startup time, the dictionaries may be memory mapped from a binary snapshot created with the
+ * DictionarySnapshot tool, by specifying the snapshot file with -Dtranslit.snapshot. If the file does not exist, or
+ * a mapping file (e.g. in -Dtranslit.dir) differs from the one the snapshot was created from, the dictionaries are
+ * loaded from the mapping files as usual.
+ *
+ * Where heap is scarce (e.g. with many instances per host), the dictionaries loaded from the mapping files may be
+ * held in a compact form with -Dtranslit.compactDictionaries=true, where both directions of a language pair share
+ * one copy of each word, packed at about a byte per character - see CompactDictionaries. A word found in a compact
+ * dictionary is decoded on each lookup, and hence costs a little more time.
+ *
+ * Counters of the work done by each language pair (calls, dictionary hits, phonetic rule steps and latencies) may
+ * be enabled with -Dtranslit.metrics=true, and optionally the number of times each phonetic rule was applied with
+ * -Dtranslit.metrics.rules=true. They are available through JMX, or from getMetrics() - see Metrics.
+ *
+ * Misspelt words may be translated as their nearest dictionary word, rather than by the phonetic rules, by
+ * specifying the maximum edit distance with -Dtranslit.fuzzyDistance (e.g. 1 or 2), and optionally the maximum time
+ * for each lookup with -Dtranslit.fuzzyTimeoutMicros (1000 by default) - see Transliterator.withFuzzyLookup()
+ *
+ * The phonetic rules bundled with the engine are compiled into Java classes at build time (see translit-codegen),
+ * and hence are not parsed at startup. If the rules files found on the classpath differ from those the classes were
+ * generated from, the rules are read from the files instead.
+ *
+ * The static translateLine() and translateWord() methods delegate to a shared, immutable Transliterator instance for
+ * each language pair, which is loaded on its first use - see preload() to load language pairs in advance. A failure
+ * to load a language pair is reported as an IllegalStateException by the calls that use it. Applications may also
+ * create their own instances with Transliterator.newInstance(), e.g. to load updated dictionaries from a directory
+ * alongside the bundled ones.
+ *
+ * Large batches of lines (e.g. from an ETL job) are best translated with translateLines(), which translates each
+ * distinct word of the batch only once, in parallel on a shared pool of daemon threads. A line may be translated into
+ * several languages at once with translateLine(s, src, new int[] {SINHALA, TAMIL}, gender), which converts each word
+ * not found in the dictionaries to its phonetic form only once.
+ *
+ * Text mixing the languages (e.g. a field holding English and Tamil names) may be translated with a source language
+ * of AUTO, e.g. translateLine(s, AUTO, SINHALA, gender), where the language of each word is detected from its letters
+ * - see MixedTransliterator. Words already in the target language are left as is.
+ *
+ * Suggestions for a partly typed word may be found with complete(prefix, src, dst, gender, limit), which returns the
+ * shortest dictionary words starting with the prefix along with their transliterations.
+ *
  * The implementation is optimized for performance, and hence uses RAM to keep rules and the dictionary cached. Thus
  * the implementation will roughly take about 1.25MB of Heap Memory for English/Sinhala/Tamil transliteration.
  *
@@ -45,89 +100,93 @@ import java.util.*;
  * as a female "අවන්කා"
  *
  * e.g. Sample execution of the command line application
- * $java -jar translit-core-1.0.0.jar [-s si|ta|en*] [-t si*|ta|en] [-g m|f|u*] : (* - denotes default)
+ * $java -jar translit-core-1.0.0.jar [-s si|ta|en*|auto] [-t si*|ta|en] [-g m|f|u*] [-d dir] : (* - denotes default)
  * asankha perera
  * අසන්ඛ පෙරේරා
  *
  * Transliterating an input file /tmp/input into /tmp/output using default options
  * $java -jar translit-core-1.0.0.jar < /tmp/input > /tmp/output
  *
+ * Transliterating a large UTF-8 input file in parallel using 8 worker threads (defaults to the number of processors)
+ * $java -jar translit-core-1.0.0.jar -i /tmp/input -o /tmp/output -w 8
+ *
+ * Serving translations over HTTP on port 8080, with all language pairs kept loaded - see TranslitServer
+ * $java -jar translit-core-1.0.0.jar -p 8080
+ *
  * @author asankha perera (asankha AT gmail DOT com)
  * 6th November 2010
  */
 public class Transliterate {
 
-    private static final ClassLoader CLS_LDR = Transliterate.class.getClassLoader();
-    private static boolean DEBUG = Boolean.getBoolean("debug");
+    private static final boolean DEBUG = Boolean.getBoolean("debug");
+    private static final int CACHE_SIZE = Integer.getInteger("translit.cacheSize", 0);
+    private static final String SNAPSHOT = System.getProperty("translit.snapshot");
+    private static final boolean METRICS = Boolean.getBoolean("translit.metrics");
+    private static final boolean RULE_METRICS = Boolean.getBoolean("translit.metrics.rules");
+    private static final int FUZZY_DISTANCE = Integer.getInteger("translit.fuzzyDistance", 0);
+    private static final long FUZZY_TIMEOUT_MICROS = Long.getLong("translit.fuzzyTimeoutMicros", 1000);
+    private static final boolean COMPACT = Boolean.getBoolean("translit.compactDictionaries");
 
     public static final int ENGLISH = 0;
     public static final int SINHALA = 1;
     public static final int TAMIL   = 2;
+    /** The source language of text mixing the languages, where that of each word is detected from its letters */
+    public static final int AUTO    = -1;
 
     public static final int UNKNOWN = 0;
     public static final int MALE = 1;
     public static final int FEMALE = 2;
 
-    private static final String END_VOVELS   = ".aeiou#";
-    private static final String START_VOVELS = ".aeiou"; 
-    private static final String PREFIX = "com/asankha/translit/resources/";
-
-    private static final Map<String, String> engToSinNames = new HashMap<String, String>();
-    private static final Map<String, String> engToSinOther = new HashMap<String, String>();
-
-    private static final Map<String, String> sinToEngNames = new HashMap<String, String>();
-    private static final Map<String, String> sinToEngOther = new HashMap<String, String>();
-
-    private static final Map<String, String> engToTamNames = new HashMap<String, String>();
-    private static final Map<String, String> engToTamOther = new HashMap<String, String>();
-
-    private static final Map<String, String> tamToEngNames = new HashMap<String, String>();
-    private static final Map<String, String> tamToEngOther = new HashMap<String, String>();
+    /** The current engines - replaced as a whole on a reload */
+    private static volatile Engines engines;
+    private static ScheduledExecutorService watcher;
+    private static ExecutorService batchExecutor;
+    /** The metrics of each language pair indexed by src * 3 + dst, kept across reloads - or null if not enabled */
+    private static final Metrics[] metrics = METRICS ? newMetrics() : null;
 
-    private static final Map<String, String> sinToTamNames = new HashMap<String, String>();
-    private static final Map<String, String> sinToTamOther = new HashMap<String, String>();
-
-    private static final Map<String, String> tamToSinNames = new HashMap<String, String>();
-    private static final Map<String, String> tamToSinOther = new HashMap<String, String>();
-
-    private static LangToPhonetic[] enToPhRules;
-    private static LangToPhonetic[] siToPhRules;
-    private static LangToPhonetic[] taToPhRules;
+    static {
+        String dir = System.getProperty("translit.dir");
+        engines = newEngines(dir == null ? null : new File(dir));
+    }
 
-    private static PhoneticToLang[] phToSiRules;
-    private static PhoneticToLang[] phToTaRules;
-    private static PhoneticToLang[] phToEnRules;
+    private static Engines newEngines(File dir) {
+        return new Engines(dir, SNAPSHOT == null ? null : new File(SNAPSHOT), CACHE_SIZE, metrics, FUZZY_DISTANCE,
+            FUZZY_TIMEOUT_MICROS * 1000, COMPACT);
+    }
 
-    static {
-        try {
-            enToPhRules = loadLangToPhoneticFile(PREFIX + "rules-en.txt");
-            siToPhRules = loadLangToPhoneticFile(PREFIX + "rules-si.txt");
-            taToPhRules = loadLangToPhoneticFile(PREFIX + "rules-ta.txt");
-
-            phToSiRules = loadPhoneticToLangFile(PREFIX + "phonetic-si.txt");
-            phToTaRules = loadPhoneticToLangFile(PREFIX + "phonetic-ta.txt");
-            phToEnRules = loadPhoneticToLangFile(PREFIX + "phonetic-en.txt");
-
-            loadMappingFile(PREFIX + "en-to-si.txt", engToSinNames, engToSinOther, sinToEngNames, sinToEngOther);
-            loadMappingFile(PREFIX + "en-to-ta.txt", engToTamNames, engToTamOther, tamToEngNames, tamToEngOther);
-            loadMappingFile(PREFIX + "si-to-ta.txt", sinToTamNames, sinToTamOther, tamToSinNames, tamToSinOther);
-
-            if (DEBUG) {
-                System.out.println("En to Ph rules : " + enToPhRules.length);
-                System.out.println("Si to Ph rules : " + siToPhRules.length);
-                System.out.println("Ta to Ph rules : " + taToPhRules.length);
-                System.out.println("Ph to Si rules : " + phToSiRules.length);
-                System.out.println("Ph to Ta rules : " + phToTaRules.length);
-                System.out.println("Ph to En rules : " + phToEnRules.length);
-                System.out.println("En to Si mappings : " + engToSinNames.size() + " : " + engToSinOther.size());
-                System.out.println("En to Ta mappings : " + engToTamNames.size() + " : " + engToTamOther.size());
-                System.out.println("Si to Ta mappings : " + sinToTamNames.size() + " : " + sinToTamOther.size());
+    private static Metrics[] newMetrics() {
+        Metrics[] m = new Metrics[9];
+        for (int src=ENGLISH; src<=TAMIL; src++) {
+            for (int dst=ENGLISH; dst<=TAMIL; dst++) {
+                if (src != dst) {
+                    String pair = ResourceLoader.code(src) + "-" + ResourceLoader.code(dst);
+                    m[src * 3 + dst] = new Metrics(pair, RULE_METRICS);
+                    try {
+                        ManagementFactory.getPlatformMBeanServer().registerMBean(m[src * 3 + dst],
+                            new ObjectName("com.asankha.translit:type=Metrics,pair=" + pair));
+                    } catch (Exception e) {
+                        System.out.println("Error registering the metrics MBean for : " + pair + " : " +
+                            e.getMessage());
+                    }
+                }
             }
+        }
+        return m;
+    }
 
-        } catch (Exception e) {
-            System.out.println("Error during the initialization of the Transliterator : " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * Return the metrics of the shared transliterator for the given language pair
+     *
+     * @param src the source language - i.e. ENGLISH, SINHALA or TAMIL
+     * @param dst the target language
+     * @return the metrics of the pair, or null if metrics are not enabled with -Dtranslit.metrics=true
+     * @throws IllegalArgumentException if the language pair is not supported
+     */
+    public static Metrics getMetrics(int src, int dst) {
+        if (!Transliterator.isValidLanguagePair(src, dst)) {
+            throw new IllegalArgumentException("Invalid language pair : " + src + " to " + dst);
         }
+        return metrics == null ? null : metrics[src * 3 + dst];
     }
 
     public static void main(String[] args) {
@@ -137,13 +196,19 @@ public class Transliterate {
         int src = ENGLISH;
         int dst = SINHALA;
         int gender = UNKNOWN;
+        String input = null;
+        String output = null;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int port = -1;
 
-        System.out.println("java -jar translit.jar [-s si|ta|en*] [-t si*|ta|en] [-g m|f|u*] : (* - denotes default)");
+        System.out.println("java -jar translit.jar [-s si|ta|en*|auto] [-t si*|ta|en] [-g m|f|u*] [-d dir] " +
+            "[-i input -o output [-w workers]] [-p port] : (* - denotes default)");
 
         for (int i=0; i<args.length; i++) {
             if (args[i].equals("-s")) {
                 if (i+1 < args.length) {
-                    src = "si".equals(args[i+1]) ? SINHALA : "ta".equals(args[i+1]) ? TAMIL : ENGLISH;
+                    src = "si".equals(args[i+1]) ? SINHALA : "ta".equals(args[i+1]) ? TAMIL :
+                        "auto".equals(args[i+1]) ? AUTO : ENGLISH;
                 }
             }
             if (args[i].equals("-t")) {
@@ -156,6 +221,77 @@ public class Transliterate {
                     gender = "m".equals(args[i+1]) ? MALE : "f".equals(args[i+1]) ? FEMALE : UNKNOWN;
                 }
             }
+            if (args[i].equals("-i")) {
+                if (i+1 < args.length) {
+                    input = args[i+1];
+                }
+            }
+            if (args[i].equals("-o")) {
+                if (i+1 < args.length) {
+                    output = args[i+1];
+                }
+            }
+            if (args[i].equals("-w")) {
+                if (i+1 < args.length) {
+                    workers = parseNumber(args[i+1]);
+                    if (workers < 1) {
+                        System.out.println("Invalid number of workers : " + args[i+1]);
+                        return;
+                    }
+                }
+            }
+            if (args[i].equals("-p")) {
+                if (i+1 < args.length) {
+                    port = parseNumber(args[i+1]);
+                    if (port < 0) {
+                        System.out.println("Invalid port : " + args[i+1]);
+                        return;
+                    }
+                }
+            }
+            if (args[i].equals("-d")) {
+                if (i+1 < args.length) {
+                    try {
+                        reload(new File(args[i+1]));
+                    } catch (IOException e) {
+                        System.out.println("Error loading from directory : " + args[i+1] + " : " + e.getMessage());
+                        return;
+                    }
+                }
+            }
+        }
+
+        if (port != -1) {
+            try {
+                TranslitServer server = new TranslitServer(port);
+                server.start();
+                System.out.println("Listening on port : " + server.getPort());
+            } catch (IOException e) {
+                System.out.println("Error starting the server on port : " + port + " : " + e.getMessage());
+            }
+            return;
+        }
+
+        if ((input == null) != (output == null)) {
+            System.out.println("Both an input file (-i) and an output file (-o) are required to transliterate a file");
+            return;
+        }
+        if (input != null) {
+            if (src == AUTO) {
+                System.out.println("The source language must be given to transliterate a file");
+                return;
+            }
+            try {
+                long start = System.currentTimeMillis();
+                long lines = new FileTransliterator(getTransliterator(src, dst), gender, workers).transliterate(
+                    new File(input), new File(output));
+                long millis = Math.max(1, System.currentTimeMillis() - start);
+                System.out.println("Transliterated " + lines + " lines in " + millis + " ms using " + workers +
+                    " workers (" + (lines * 1000 / millis) + " lines/sec)");
+            } catch (IOException e) {
+                System.out.println("Error transliterating file : " + input + " : " + e.getMessage());
+            }
+            return;
         }
 
         Scanner sc = new Scanner(System.in);
@@ -167,257 +303,269 @@ public class Transliterate {
         } catch (NoSuchElementException ignore) {}
     }
 
-    private static LangToPhonetic[] loadLangToPhoneticFile(String filename) throws Exception {
-        DataInputStream in = new DataInputStream(CLS_LDR.getResourceAsStream(filename));
-        BufferedReader br = new BufferedReader(new InputStreamReader(in));
-
-        String s;
-        List<LangToPhonetic> list = new ArrayList<LangToPhonetic>();
-        while ((s = br.readLine()) != null) {
-            String[] p = s.split(",");
-            list.add(new LangToPhonetic(p[2].replaceAll("%", ".*"), p[0], p[3], p[4].replaceAll("%", "")));
+    /**
+     * @return the non negative number given on the command line, or -1 if it is not one
+     */
+    private static int parseNumber(String s) {
+        try {
+            return Math.max(Integer.parseInt(s), -1);
+        } catch (NumberFormatException e) {
+            return -1;
         }
-        in.close();
-        return list.toArray(new LangToPhonetic[list.size()]);
     }
 
-    private static PhoneticToLang[] loadPhoneticToLangFile(String filename) throws Exception {
-        DataInputStream in = new DataInputStream(CLS_LDR.getResourceAsStream(filename));
-        BufferedReader br = new BufferedReader(new InputStreamReader(in));
+    /**
+     * Reload the rules and dictionaries from the current resource directory (if any) and the classpath
+     *
+     * @throws IOException on a failure to load, in which case the current engines remain in use
+     */
+    public static void reload() throws IOException {
+        reload(engines.getDirectory());
+    }
 
-        String s;
-        List<PhoneticToLang> list = new ArrayList<PhoneticToLang>();
-        while ((s = br.readLine()) != null) {
-            String[] p = s.split(",");
-            list.add(new PhoneticToLang(p[0].replaceAll("\\.", "\\\\.").replaceAll("%", ".*"), p[1].replaceAll("%", ""), p[2]));
+    /**
+     * Reload the rules and dictionaries from the given directory, and make it the current resource directory. Any
+     * file not found in the directory is read from the classpath. The language pairs already in use are loaded
+     * afresh, and the new engines are swapped in only once all of them have been successfully loaded
+     *
+     * @param dir the directory to load from, or null to load only from the classpath
+     * @throws IOException on a failure to load, in which case the current engines remain in use
+     */
+    public static synchronized void reload(File dir) throws IOException {
+        Engines current = engines;
+        Engines loaded = newEngines(dir);
+        for (int src=ENGLISH; src<=TAMIL; src++) {
+            for (int dst=ENGLISH; dst<=TAMIL; dst++) {
+                if (src != dst && current.isLoaded(src, dst)) {
+                    loaded.get(src, dst);
+                }
+            }
+        }
+        engines = loaded;
+        if (DEBUG) {
+            System.out.println("Reloaded rules and dictionaries from : " + (dir == null ? "classpath" : dir));
         }
-        in.close();
-        return list.toArray(new PhoneticToLang[list.size()]);
     }
 
-    private static void loadMappingFile(String filename,
-        Map<String, String> namesOne, Map<String, String> otherOne,
-        Map<String, String> namesTwo, Map<String, String> otherTwo) throws Exception {
-
-        DataInputStream in = new DataInputStream(CLS_LDR.getResourceAsStream(filename));
-        BufferedReader br = new BufferedReader(new InputStreamReader(in));
+    /**
+     * Start polling the current resource directory for changes to the rules and dictionary files, and reload them
+     * when any file is added, removed or modified
+     *
+     * @param intervalMillis the polling interval in milliseconds
+     * @throws IllegalStateException if no resource directory has been specified
+     */
+    public static synchronized void startWatching(long intervalMillis) {
+        final File dir = engines.getDirectory();
+        if (dir == null) {
+            throw new IllegalStateException("A resource directory has not been specified to watch");
+        }
+        stopWatching();
 
-        String s;
-        while ((s = br.readLine()) != null) {
-            String[] p = s.toLowerCase().split(",");
-            if ("1".equals(p[2]) || "1".equals(p[3])) {
-                // this is a person name
-                if (!namesOne.containsKey(p[0])) {
-                    namesOne.put(p[0], p[1]);
-                }
-                if (!namesTwo.containsKey(p[1])) {
-                    namesTwo.put(p[1], p[0]);
-                }
-            } else {
-                if (!otherOne.containsKey(p[0])) {
-                    otherOne.put(p[0], p[1]);
-                }
-                if (!otherTwo.containsKey(p[1])) {
-                    otherTwo.put(p[1], p[0]);
+        watcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "translit-watcher");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        watcher.scheduleWithFixedDelay(new Runnable() {
+            private long lastFingerprint = fingerprint(dir);
+
+            public void run() {
+                long f = fingerprint(dir);
+                if (f != lastFingerprint) {
+                    try {
+                        reload(dir);
+                        lastFingerprint = f;
+                    } catch (Exception e) {
+                        // keep the current engines, and retry on the next poll
+                        System.out.println("Error reloading from directory : " + dir + " : " + e.getMessage());
+                    }
                 }
             }
-        }
-        in.close();
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
     }
 
-    //----------------------------- translate a phrase from one language to another ------------------------------------
-    public static String translateLine(String s, int src, int dst, int gender) {
+    public static synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
 
-        if (DEBUG) {
-            System.out.println("Src : " + src + " Target : " + dst + " Gender : " + gender);    
+    private static long fingerprint(File dir) {
+        long f = 17;
+        for (String name : ResourceLoader.FILES) {
+            File file = new File(dir, name);
+            f = 31 * f + (file.isFile() ? file.lastModified() * 31 + file.length() : -1);
         }
+        return f;
+    }
 
-        StringTokenizer st = new StringTokenizer(s.toLowerCase(), " ,\\[]#'\"()", true);
-        if (st.countTokens() == 1) {
-            return translateWord(st.nextToken(), src, dst, gender);
-
-        } else {
-            StringBuilder sb = new StringBuilder();
-            while (st.hasMoreTokens()) {
-                String t = st.nextToken();
-                if (t.length() > 1) {
-                    sb.append(translateWord(t, src, dst, gender));
-                } else {
-                    sb.append(t);
+    /**
+     * Load the rules and dictionaries of all language pairs now, rather than on their first use
+     *
+     * @throws IOException on a failure to load any language pair
+     */
+    public static void preload() throws IOException {
+        for (int src=ENGLISH; src<=TAMIL; src++) {
+            for (int dst=ENGLISH; dst<=TAMIL; dst++) {
+                if (src != dst) {
+                    preload(src, dst);
                 }
             }
-            return sb.toString();
         }
     }
 
-    // ---------------------------- translate one word from one language to another ------------------------------------
-    public static String translateWord(String s, int src, int dst, int gender) {
+    /**
+     * Load the rules and dictionaries of the given language pair now, rather than on its first use - e.g. to warm up
+     * a latency sensitive service before it accepts requests
+     *
+     * @param src the source language - i.e. ENGLISH, SINHALA or TAMIL
+     * @param dst the target language
+     * @throws IOException on a failure to load the language pair
+     * @throws IllegalArgumentException if the language pair is not supported
+     */
+    public static void preload(int src, int dst) throws IOException {
+        if (!Transliterator.isValidLanguagePair(src, dst)) {
+            throw new IllegalArgumentException("Invalid language pair : " + src + " to " + dst);
+        }
+        engines.get(src, dst);
+    }
 
-        Map<String, String> otherMap = null;
-        Map<String, String> namesMap = null;
-        LangToPhonetic[] langToPhonetic = null;
-        PhoneticToLang[] phoneticToLang = null;
-
-        s = s.toLowerCase();
-
-        switch (src) {
-            case SINHALA:
-                switch (dst) {
-                    case TAMIL:
-                        otherMap = sinToTamOther;
-                        namesMap = sinToTamNames;
-                        langToPhonetic = siToPhRules;
-                        phoneticToLang = phToTaRules;
-                        break;
-                    case ENGLISH:
-                        otherMap = sinToEngOther;
-                        namesMap = sinToEngNames;
-                        langToPhonetic = siToPhRules;
-                        phoneticToLang = phToEnRules;
-                        break;
-                }
-                break;
-            case TAMIL:
-                switch (dst) {
-                    case SINHALA:
-                        otherMap = tamToSinOther;
-                        namesMap = tamToSinNames;
-                        langToPhonetic = taToPhRules;
-                        phoneticToLang = phToSiRules;
-                        break;
-                    case ENGLISH:
-                        otherMap = tamToEngOther;
-                        namesMap = tamToEngNames;
-                        langToPhonetic = taToPhRules;
-                        phoneticToLang = phToEnRules;
-                        break;
-                }
-                break;
-            case ENGLISH:
-                switch (dst) {
-                    case TAMIL:
-                        otherMap = engToTamOther;
-                        namesMap = engToTamNames;
-                        langToPhonetic = enToPhRules;
-                        phoneticToLang = phToTaRules;
-                        break;
-                    case SINHALA:
-                        otherMap = engToSinOther;
-                        namesMap = engToSinNames;
-                        langToPhonetic = enToPhRules;
-                        phoneticToLang = phToSiRules;
-                        break;
-                }
-                break;
+    /**
+     * Return the shared transliterator for the given language pair, loading it on first use
+     *
+     * @param src the source language - i.e. ENGLISH, SINHALA or TAMIL
+     * @param dst the target language
+     * @return the transliterator for the pair
+     * @throws IllegalArgumentException if the language pair is not supported
+     * @throws IllegalStateException if the rules or dictionaries of the language pair could not be loaded
+     */
+    public static Transliterator getTransliterator(int src, int dst) {
+        if (!Transliterator.isValidLanguagePair(src, dst)) {
+            throw new IllegalArgumentException("Invalid language pair : " + src + " to " + dst);
         }
+        return engine(src, dst);
+    }
 
-        if (namesMap == null || otherMap == null) {
-            System.out.println("Invalid language pair");
-            return null;
+    private static Transliterator engine(int src, int dst) {
+        try {
+            return engines.get(src, dst);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error loading the transliterator for " +
+                ResourceLoader.code(src) + " to " + ResourceLoader.code(dst) + " : " + e.getMessage(), e);
         }
-        
-        String result = null;
-        if (gender == UNKNOWN) {
-            result = otherMap.get(s);
-        } else {
-            result = namesMap.get(s);
+    }
+
+    /**
+     * Return the shared transliterator of text mixing the languages into the given language, which shares the
+     * transliterators of the other two languages into it, and is replaced along with them on a reload
+     *
+     * @param dst the target language - i.e. ENGLISH, SINHALA or TAMIL
+     * @return the transliterator
+     * @throws IllegalArgumentException if the target language is not supported
+     * @throws IllegalStateException if the rules or dictionaries of a language pair could not be loaded
+     */
+    public static MixedTransliterator getMixedTransliterator(int dst) {
+        if (dst < ENGLISH || dst > TAMIL) {
+            throw new IllegalArgumentException("Invalid target language : " + dst);
         }
-        
-        if (result != null) {
-            return result;
-        } else {
-            if (DEBUG) {
-                System.out.println("Dictionary lookup failed for : " + s);
-            }
-            return phoneticToLang(convertToPhonetic(s, gender, langToPhonetic), phoneticToLang);
+        try {
+            return engines.getMixed(dst);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error loading the transliterators into " + ResourceLoader.code(dst) +
+                " : " + e.getMessage(), e);
         }
     }
 
+    //----------------------------- translate a phrase from one language to another ------------------------------------
+    public static String translateLine(String s, int src, int dst, int gender) {
+        if (src == AUTO && dst >= ENGLISH && dst <= TAMIL) {
+            return getMixedTransliterator(dst).translateLine(s, gender);
+        }
+        if (!Transliterator.isValidLanguagePair(src, dst)) {
+            System.out.println("Invalid language pair");
+            return null;
+        }
+        return engine(src, dst).translateLine(s, gender);
+    }
 
-    // --------------------- rules based translation to / from a language to phonetic ----------------------------------
-
-    private static String convertToPhonetic(String word, int gender, LangToPhonetic[] rules) {
-
-        StringBuilder in = new StringBuilder().append("#").append(word).append("#");
-        StringBuilder out = new StringBuilder();
+    //----------------------------- translate a phrase from one language to several others ----------------------------
+    public static String[] translateLine(String s, int src, int[] dsts, int gender) {
+        Transliterator[] targets = targets(src, dsts);
+        return targets == null ? null : Transliterator.translateLine(s, gender, targets);
+    }
 
-        while (in.length() > 0) {
-            boolean found = false;
-            String s = in.toString();
+    // ---------------------------- translate one word from one language to several others -----------------------------
+    public static String[] translateWord(String s, int src, int[] dsts, int gender) {
+        Transliterator[] targets = targets(src, dsts);
+        return targets == null ? null : Transliterator.translateWord(s, gender, targets);
+    }
 
-            for (LangToPhonetic l2p : rules) {
-                boolean c = s.matches(l2p.getRule());
-                if (c && (gender == l2p.getGender() || l2p.getGender() == UNKNOWN)) {
-                    if (DEBUG) {
-                        System.out.println("In : " + s + " matches : " + l2p.getRule() + " with : " + l2p.getPhonetic());
-                    }
-                    appendPhoneticWithCorrection(out, l2p.getPhonetic());
-                    in.delete(0, l2p.getLength());
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                out.append(in.charAt(0));
-                in.delete(0, 1);
+    private static Transliterator[] targets(int src, int[] dsts) {
+        Transliterator[] targets = new Transliterator[dsts.length];
+        for (int i=0; i<dsts.length; i++) {
+            if (!Transliterator.isValidLanguagePair(src, dsts[i])) {
+                System.out.println("Invalid language pair");
+                return null;
             }
+            targets[i] = engine(src, dsts[i]);
         }
+        return targets;
+    }
 
-        if (DEBUG) {
-            System.out.println("convertToPhonetic(" + word + ") = " + out.toString());
+    //----------------------------- translate a batch of lines from one language to another ---------------------------
+    public static String[] translateLines(String[] lines, int src, int dst, int gender) {
+        if (!Transliterator.isValidLanguagePair(src, dst)) {
+            System.out.println("Invalid language pair");
+            return null;
         }
-        return out.toString();
+        return engine(src, dst).translateLines(lines, gender, batchExecutor());
     }
 
-    private static String phoneticToLang(String word, PhoneticToLang[] rules) {
+    public static List<String> translateLines(Collection<String> lines, int src, int dst, int gender) {
+        if (!Transliterator.isValidLanguagePair(src, dst)) {
+            System.out.println("Invalid language pair");
+            return null;
+        }
+        return engine(src, dst).translateLines(lines, gender, batchExecutor());
+    }
 
-        StringBuilder in = new StringBuilder().append(word);
-        StringBuilder out = new StringBuilder();
+    private static synchronized ExecutorService batchExecutor() {
+        if (batchExecutor == null) {
+            batchExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                new ThreadFactory() {
+                    private int count;
 
-        while (in.length() > 0) {
-            boolean found = false;
-            String s = in.toString();
-            for (PhoneticToLang p2l : rules) {
-                boolean c = s.matches(p2l.getRule());
-                if (c) {
-                    if (DEBUG) {
-                        System.out.println("In : " + s + " matches : " + p2l.getRule() + " with : " + p2l.getLang());
-                    }
-                    if (p2l.getLang() != null) {
-                        out.append(p2l.getLang());
+                    public synchronized Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "translit-batch-" + (++count));
+                        t.setDaemon(true);
+                        return t;
                     }
-                    in.delete(0, p2l.getLength());
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                out.append(in.charAt(0));
-                in.delete(0, 1);
-            }
+                });
         }
+        return batchExecutor;
+    }
 
-        if (DEBUG) {
-            System.out.println("phoneticToLang(" + word + ") = " + out.toString().replaceAll("#", ""));
+    // ---------------------------- translate one word from one language to another ------------------------------------
+    public static String translateWord(String s, int src, int dst, int gender) {
+        if (src == AUTO && dst >= ENGLISH && dst <= TAMIL) {
+            return getMixedTransliterator(dst).translateWord(s, gender);
+        }
+        if (!Transliterator.isValidLanguagePair(src, dst)) {
+            System.out.println("Invalid language pair");
+            return null;
         }
-        return out.toString().replaceAll("#", "");
+        return engine(src, dst).translateWord(s, gender);
     }
 
-    private static void appendPhoneticWithCorrection(StringBuilder out, String ph) {
-        final int len = out.length();
-        if (len > 0) {
-            String lastChar = out.substring(len-1);
-            if (END_VOVELS.indexOf(lastChar) == -1) {   // not a vowel
-                if (ph.length() > 0) {
-                    if (START_VOVELS.indexOf(ph.substring(0,1)) == -1) { // not a vowel
-                        out.append(".a");
-                    }
-                } else {
-                    out.append(".a");
-                }
-            }
+    // ---------------------------- complete a partly typed word from the dictionaries ---------------------------------
+    public static Map<String, String> complete(String prefix, int src, int dst, int gender, int limit) {
+        if (!Transliterator.isValidLanguagePair(src, dst)) {
+            System.out.println("Invalid language pair");
+            return null;
         }
-        out.append(ph);
+        return engine(src, dst).complete(prefix, gender, limit);
     }
-
 }
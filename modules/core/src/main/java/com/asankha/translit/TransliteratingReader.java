@@ -0,0 +1,87 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A Reader which transliterates the text read from another Reader on the fly, with the same result as translating
+ * each line with translateLine(). The text is read a buffer at a time, and only the word in progress at the end of
+ * a buffer is held back until its end is read, and hence text of any size (e.g. from a file, socket or compressed
+ * stream) may be transliterated without reading it all into memory.
+ *
+ * e.g.
+ * Reader r = new TransliteratingReader(new InputStreamReader(in, "UTF-8"), transliterator, Transliterate.MALE);
+ *
+ * @author asankha
+ */
+public final class TransliteratingReader extends Reader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader in;
+    private final StreamTranslator translator;
+    private final char[] buf = new char[BUFFER_SIZE];
+    /** The transliterated text not yet read, from pos */
+    private final StringBuilder pending = new StringBuilder(BUFFER_SIZE);
+    private int pos;
+    private boolean eof;
+
+    /**
+     * @param in the reader to read the text to transliterate from
+     * @param transliterator the transliterator to use
+     * @param gender the gender - i.e. Transliterate.UNKNOWN, MALE or FEMALE
+     */
+    public TransliteratingReader(Reader in, Transliterator transliterator, int gender) {
+        this.in = in;
+        this.translator = new StreamTranslator(transliterator, gender);
+    }
+
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (pos == pending.length()) {
+            if (eof) {
+                return -1;
+            }
+            pending.setLength(0);
+            pos = 0;
+            int n = in.read(buf, 0, buf.length);
+            if (n == -1) {
+                translator.finish(pending);
+                eof = true;
+            } else {
+                translator.append(buf, 0, n, pending);
+            }
+        }
+        int n = Math.min(len, pending.length() - pos);
+        pending.getChars(pos, pos + n, cbuf, off);
+        pos += n;
+        return n;
+    }
+
+    public boolean ready() {
+        return pos < pending.length();
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+}
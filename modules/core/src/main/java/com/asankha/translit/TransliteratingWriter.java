@@ -0,0 +1,88 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A Writer which transliterates the text written to it on the fly, into another Writer, with the same result as
+ * translating each line with translateLine(). Only the word in progress is held back until its end is written, and
+ * hence text of any size (e.g. to a file, socket or compressed stream) may be transliterated without buffering it.
+ *
+ * As a word may continue in the next write, flush() writes out the text only up to the last complete word, and
+ * close() writes out the rest.
+ *
+ * e.g.
+ * Writer w = new TransliteratingWriter(new OutputStreamWriter(out, "UTF-8"), transliterator, Transliterate.MALE);
+ *
+ * @author asankha
+ */
+public final class TransliteratingWriter extends Writer {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer out;
+    private final StreamTranslator translator;
+    private final StringBuilder pending = new StringBuilder(BUFFER_SIZE);
+    private boolean closed;
+
+    /**
+     * @param out the writer to write the transliterated text to
+     * @param transliterator the transliterator to use
+     * @param gender the gender - i.e. Transliterate.UNKNOWN, MALE or FEMALE
+     */
+    public TransliteratingWriter(Writer out, Transliterator transliterator, int gender) {
+        this.out = out;
+        this.translator = new StreamTranslator(transliterator, gender);
+    }
+
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        translator.append(cbuf, off, len, pending);
+        if (pending.length() >= BUFFER_SIZE) {
+            drain();
+        }
+    }
+
+    public void flush() throws IOException {
+        ensureOpen();
+        drain();
+        out.flush();
+    }
+
+    public void close() throws IOException {
+        if (!closed) {
+            translator.finish(pending);
+            drain();
+            closed = true;
+            out.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.append(pending);
+        pending.setLength(0);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Writer closed");
+        }
+    }
+}
@@ -0,0 +1,1122 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A transliteration engine for one language pair, with its dictionaries and phonetic rules bound at construction.
+ *
+ * An instance is immutable, and hence may be safely published to, and shared by any number of threads without
+ * contention. Instances created from different resources may co-exist in the same JVM, e.g. to compare an updated
+ * en-to-si.txt dictionary against the bundled version.
+ *
+ * Optionally, the results of the phonetic rules for words not found in the dictionaries may be cached, for input
+ * where the same words recur often - see withCache(). Large batches of lines may be translated with translateLines(),
+ * which translates each distinct word of the batch only once, optionally in parallel. The work done may be measured
+ * by attaching Metrics - see withMetrics().
+ *
+ * A dictionary entry of several words separated by single spaces (e.g. "king coconut") is translated as a whole where
+ * its words follow one another in a line, preferring the longest such phrase starting at each word.
+ *
+ * Optionally, a word not found in the dictionaries may first be looked up approximately, to translate a misspelt word
+ * (e.g. "pererra") as its nearest dictionary word rather than by the phonetic rules - see withFuzzyLookup()
+ *
+ * Text of any size may be transliterated as it is read or written with a TransliteratingReader or
+ * TransliteratingWriter, or line by line with translateLines(Iterator).
+ *
+ * The dictionary words starting with a partly typed word may be found with their transliterations, for suggestions
+ * on each keystroke of an input field - see complete(). The transliteration of the word itself may be kept up to date
+ * on each keystroke with a TypingSession, which only re-applies the rules to the end of the word that has changed.
+ *
+ * e.g.
+ * Transliterator t = Transliterator.newInstance(Transliterate.ENGLISH, Transliterate.SINHALA);
+ * t.translateLine("asankha perera", Transliterate.MALE);
+ *
+ * @author asankha
+ */
+public final class Transliterator {
+
+    private static final boolean DEBUG = Boolean.getBoolean("debug");
+
+    private static final String END_VOVELS   = ".aeiou#";
+    private static final String START_VOVELS = ".aeiou";
+    static final String DELIMITERS   = " ,\\[]#'\"()";
+
+    /** Buffers grown beyond this by a long line are not kept for reuse by the thread */
+    static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    /** The minimum number of distinct words translated by each task of a parallel batch */
+    private static final int MIN_WORDS_PER_TASK = 256;
+
+    private final int src;
+    private final int dst;
+    private final Dictionary namesMap;
+    private final Dictionary otherMap;
+    private final RuleSet<LangToPhonetic> langToPhonetic;
+    private final RuleSet<PhoneticToLang> phoneticToLang;
+    private final ResultCache cache;
+    private final Metrics metrics;
+    private final Metrics.RuleHits ruleHits;
+    private final FuzzyLookup fuzzy;
+    private final PhraseTrie namesPhrases;
+    private final PhraseTrie otherPhrases;
+    /** The prefix indexes of the names and other dictionaries, built on the first call to complete() */
+    private volatile PrefixIndex namesPrefixes;
+    private volatile PrefixIndex otherPrefixes;
+
+    Transliterator(int src, int dst, Dictionary namesMap, Dictionary otherMap,
+        RuleSet<LangToPhonetic> langToPhonetic, RuleSet<PhoneticToLang> phoneticToLang) {
+        this(src, dst, namesMap, otherMap, langToPhonetic, phoneticToLang, null, null, null,
+            PhraseTrie.build(namesMap), PhraseTrie.build(otherMap));
+    }
+
+    private Transliterator(int src, int dst, Dictionary namesMap, Dictionary otherMap,
+        RuleSet<LangToPhonetic> langToPhonetic, RuleSet<PhoneticToLang> phoneticToLang, ResultCache cache,
+        Metrics metrics, FuzzyLookup fuzzy, PhraseTrie namesPhrases, PhraseTrie otherPhrases) {
+
+        checkLanguagePair(src, dst);
+        this.src = src;
+        this.dst = dst;
+        this.namesMap = namesMap;
+        this.otherMap = otherMap;
+        this.langToPhonetic = langToPhonetic;
+        this.phoneticToLang = phoneticToLang;
+        this.cache = cache;
+        this.metrics = metrics;
+        this.ruleHits = metrics == null ? null : metrics.bindRules(langToPhonetic);
+        this.fuzzy = fuzzy;
+        this.namesPhrases = namesPhrases;
+        this.otherPhrases = otherPhrases;
+    }
+
+    /**
+     * Create a new transliterator for the given language pair, from the rules and dictionaries on the classpath
+     *
+     * @param src the source language - i.e. Transliterate.ENGLISH, SINHALA or TAMIL
+     * @param dst the target language
+     * @return the new transliterator
+     * @throws IOException on a failure to load the rules or dictionaries
+     * @throws IllegalArgumentException if the language pair is not supported
+     */
+    public static Transliterator newInstance(int src, int dst) throws IOException {
+        return newInstance(src, dst, null);
+    }
+
+    /**
+     * Create a new transliterator for the given language pair, using the rules and dictionary files found in the
+     * given directory (e.g. en-to-si.txt, rules-en.txt and phonetic-si.txt) in preference to those on the classpath
+     *
+     * @param src the source language - i.e. Transliterate.ENGLISH, SINHALA or TAMIL
+     * @param dst the target language
+     * @param dir the directory to load files from, or null to only use the classpath
+     * @return the new transliterator
+     * @throws IOException on a failure to load the rules or dictionaries
+     * @throws IllegalArgumentException if the language pair is not supported
+     */
+    public static Transliterator newInstance(int src, int dst, File dir) throws IOException {
+
+        checkLanguagePair(src, dst);
+        return new Engines(dir, null, 0).load(src, dst);
+    }
+
+    static boolean isValidLanguagePair(int src, int dst) {
+        return src != dst
+            && src >= Transliterate.ENGLISH && src <= Transliterate.TAMIL
+            && dst >= Transliterate.ENGLISH && dst <= Transliterate.TAMIL;
+    }
+
+    private static void checkLanguagePair(int src, int dst) {
+        if (!isValidLanguagePair(src, dst)) {
+            throw new IllegalArgumentException("Invalid language pair : " + src + " to " + dst);
+        }
+    }
+
+    /**
+     * Return a transliterator sharing the dictionaries and rules of this one, with a new cache in front of the
+     * phonetic rules for words not found in the dictionaries
+     *
+     * @param capacity the maximum number of words to cache, or 0 for no cache
+     * @return the new transliterator
+     */
+    public Transliterator withCache(int capacity) {
+        return new Transliterator(src, dst, namesMap, otherMap, langToPhonetic, phoneticToLang,
+            capacity > 0 ? new ResultCache(capacity) : null, metrics, fuzzy, namesPhrases, otherPhrases);
+    }
+
+    /**
+     * Return a transliterator sharing the dictionaries, rules and cache of this one, which records its work in the
+     * given metrics
+     *
+     * @param metrics the metrics to record to, or null for none
+     * @return the new transliterator
+     */
+    public Transliterator withMetrics(Metrics metrics) {
+        return new Transliterator(src, dst, namesMap, otherMap, langToPhonetic, phoneticToLang, cache, metrics,
+            fuzzy, namesPhrases, otherPhrases);
+    }
+
+    /**
+     * Return a transliterator sharing the dictionaries, rules, cache and metrics of this one, which translates a word
+     * not found in the dictionaries as the nearest dictionary word within the given edit distance if there is one,
+     * before falling back to the phonetic rules. Each edit (an insertion, deletion, substitution or transposition of
+     * adjacent characters) is allowed only for every three characters of the word, so that short words are not
+     * matched to unrelated ones. The dictionaries are indexed when this is called, and the index takes memory
+     * roughly proportional to the dictionary size times the word length to the power of the distance.
+     *
+     * @param maxDistance the maximum edit distance - 1 or 2 are typical, or 0 for no fuzzy lookup
+     * @param timeoutNanos the maximum time to spend on each lookup, after which the word is translated by the phonetic
+     * rules instead
+     * @return the new transliterator
+     */
+    public Transliterator withFuzzyLookup(int maxDistance, long timeoutNanos) {
+        return new Transliterator(src, dst, namesMap, otherMap, langToPhonetic, phoneticToLang, cache, metrics,
+            maxDistance > 0 ? new FuzzyLookup(namesMap, otherMap, maxDistance, timeoutNanos) : null, namesPhrases,
+            otherPhrases);
+    }
+
+    /**
+     * @return the metrics this transliterator records to, or null if it does not record any
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the cache of phonetic results and its statistics, or null if this transliterator does not cache
+     */
+    public ResultCache getCache() {
+        return cache;
+    }
+
+    public int getSource() {
+        return src;
+    }
+
+    public int getTarget() {
+        return dst;
+    }
+
+    //----------------------------- translate a phrase from one language to another ------------------------------------
+    public String translateLine(String s, int gender) {
+        StringBuilder sb = new StringBuilder(s.length() * 2);
+        translateLine(s, gender, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Translate a line into the given buffer. A word found in the dictionaries is translated without allocating any
+     * objects, and a word translated by the phonetic rules allocates only a fixed amount (unless a cache is used)
+     *
+     * @param s the line to translate
+     * @param gender the gender - i.e. Transliterate.UNKNOWN, MALE or FEMALE
+     * @param out the buffer to append the translation to
+     */
+    public void translateLine(CharSequence s, int gender, StringBuilder out) {
+        Scratch sc = SCRATCH.get();
+        sc.targets[0] = this;
+        sc.outs[0] = out;
+        try {
+            translateLine(s, gender, sc.targets, sc.outs, 1, sc);
+        } finally {
+            sc.targets[0] = null;
+            sc.outs[0] = null;
+        }
+    }
+
+    public void translateLine(CharSequence s, int gender, Appendable out) throws IOException {
+        Scratch sc = SCRATCH.get();
+        sc.result.setLength(0);
+        translateLine(s, gender, sc.result);
+        out.append(sc.result);
+    }
+
+    //----------------------------- translate a phrase into several languages at once ---------------------------------
+    /**
+     * Translate a line into each of the target languages of the given transliterators, with the same results as
+     * calling translateLine() on each. The line is tokenized once, and the phonetic form of a word not found in the
+     * dictionaries of several targets is computed only once for all of them
+     *
+     * @param s the line to translate
+     * @param gender the gender - i.e. Transliterate.UNKNOWN, MALE or FEMALE
+     * @param targets the transliterators to each target language, all from the same source language
+     * @return the translations, in the order of the targets
+     * @throws IllegalArgumentException if the transliterators are not all from the same source language
+     */
+    public static String[] translateLine(String s, int gender, Transliterator[] targets) {
+        StringBuilder[] outs = newBuffers(targets, s.length());
+        translateLine(s, gender, targets, outs, targets.length, SCRATCH.get());
+        return toStrings(outs);
+    }
+
+    /**
+     * Translate a word into each of the target languages of the given transliterators - see translateLine()
+     *
+     * @return the translations, in the order of the targets
+     * @throws IllegalArgumentException if the transliterators are not all from the same source language
+     */
+    public static String[] translateWord(String s, int gender, Transliterator[] targets) {
+        StringBuilder[] outs = newBuffers(targets, s.length());
+        Scratch sc = SCRATCH.get();
+        translateLowerCase(toLowerCase(s, sc.word), gender, targets, outs, targets.length, sc);
+        return toStrings(outs);
+    }
+
+    private static StringBuilder[] newBuffers(Transliterator[] targets, int length) {
+        for (Transliterator t : targets) {
+            if (t.src != targets[0].src) {
+                throw new IllegalArgumentException("The transliterators must have the same source language");
+            }
+        }
+        StringBuilder[] outs = new StringBuilder[targets.length];
+        for (int i=0; i<outs.length; i++) {
+            outs[i] = new StringBuilder(length * 2);
+        }
+        return outs;
+    }
+
+    private static String[] toStrings(StringBuilder[] outs) {
+        String[] result = new String[outs.length];
+        for (int i=0; i<outs.length; i++) {
+            result[i] = outs[i].toString();
+        }
+        return result;
+    }
+
+    private static void translateLine(CharSequence s, int gender, Transliterator[] targets, StringBuilder[] outs,
+        int count, Scratch sc) {
+
+        for (int t=0; t<count; t++) {
+            if (DEBUG) {
+                System.out.println("Src : " + targets[t].src + " Target : " + targets[t].dst + " Gender : " + gender);
+            }
+            if (targets[t].metrics != null) {
+                targets[t].metrics.recordLines(1);
+            }
+        }
+
+        StringBuilder line = toLowerCase(s, sc.line);
+        final int len = line.length();
+
+        // as with a StringTokenizer returning delimiters, a line of one token is translated as a word even if it is a
+        // single character, else single characters (i.e. delimiters) are copied as is
+        if (len == 1 || (len > 1 && indexOfDelimiter(line) == -1)) {
+            translateLowerCase(line, gender, targets, outs, count, sc);
+
+        } else {
+            translateTokens(line, gender, targets, outs, count, sc);
+        }
+
+        if (line.capacity() > MAX_RETAINED_CAPACITY) {
+            SCRATCH.remove();
+        }
+    }
+
+    /**
+     * Translate each word of a lower case line, or of a part of a line ending at a delimiter, copying the delimiters
+     * and single characters between the words as is. Where a phrase of the dictionaries starts at a word, the longest
+     * such phrase is translated as a whole instead of its words.
+     */
+    private static void translateTokens(CharSequence line, int gender, Transliterator[] targets,
+        StringBuilder[] outs, int count, Scratch sc) {
+
+        final int len = line.length();
+        boolean phrases = false;
+        for (int t=0; t<count; t++) {
+            phrases |= targets[t].getPhrases(gender) != null;
+        }
+        // the end of the phrase last translated by each target, up to which its translation is already complete
+        int[] done = phrases ? sc.done(count) : null;
+        int phraseEnd = 0;
+        if (phrases) {
+            Arrays.fill(done, 0, count, 0);
+        }
+
+        int start = 0;
+        for (int i=0; i<=len; i++) {
+            if (i == len || DELIMITERS.indexOf(line.charAt(i)) != -1) {
+                Transliterator[] ts = targets;
+                StringBuilder[] os = outs;
+                int n = count;
+                if (phrases && i > start) {
+                    phraseEnd = translatePhrases(line, start, gender, targets, outs, count, done, sc);
+                }
+                if (start < phraseEnd) {
+                    // leave out the targets which have translated a phrase including this word
+                    ts = sc.activeTargets;
+                    os = sc.activeOuts;
+                    n = 0;
+                    for (int t=0; t<count; t++) {
+                        if (done[t] <= start) {
+                            ts[n] = targets[t];
+                            os[n++] = outs[t];
+                        }
+                    }
+                }
+
+                if (i - start > 1) {
+                    if (n > 0) {
+                        sc.word.setLength(0);
+                        sc.word.append(line, start, i);
+                        translateLowerCase(sc.word, gender, ts, os, n, sc);
+                    }
+                } else {
+                    for (int t=0; t<n; t++) {
+                        os[t].append(line, start, i);
+                    }
+                }
+                if (i < len) {
+                    for (int t=0; t<count; t++) {
+                        if (i >= phraseEnd || done[t] <= i) {
+                            outs[t].append(line.charAt(i));
+                        }
+                    }
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Translate the longest phrase starting at the given word, for each target that has one and is not within a phrase
+     *
+     * @return the end of the last phrase translated by any target
+     */
+    private static int translatePhrases(CharSequence line, int start, int gender, Transliterator[] targets,
+        StringBuilder[] outs, int count, int[] done, Scratch sc) {
+
+        int phraseEnd = 0;
+        for (int t=0; t<count; t++) {
+            PhraseTrie phrases = targets[t].getPhrases(gender);
+            if (phrases != null && done[t] <= start) {
+                int end = phrases.match(line, start, line.length(), sc.phrase);
+                if (end != -1) {
+                    outs[t].append(sc.phrase[0]);
+                    done[t] = end;
+                    if (targets[t].metrics != null) {
+                        targets[t].metrics.recordLookup(gender != Transliterate.UNKNOWN, true);
+                    }
+                }
+            }
+            phraseEnd = Math.max(phraseEnd, done[t]);
+        }
+        return phraseEnd;
+    }
+
+    /**
+     * Translate a part of a lower case line ending at a delimiter or at the end of the line as translateLine() would,
+     * i.e. without translating a single character as a word, for the streaming Reader and Writer
+     */
+    void translateTokens(CharSequence s, int gender, StringBuilder out) {
+        Scratch sc = SCRATCH.get();
+        sc.targets[0] = this;
+        sc.outs[0] = out;
+        translateTokens(s, gender, sc.targets, sc.outs, 1, sc);
+    }
+
+    /**
+     * @return the phrases of the dictionary used for the gender, or null if it has none
+     */
+    PhraseTrie getPhrases(int gender) {
+        return gender == Transliterate.UNKNOWN ? otherPhrases : namesPhrases;
+    }
+
+    /**
+     * Translate a lower case word for each target, converting it to its phonetic form at most once per distinct
+     * language to phonetic rule set
+     */
+    private static void translateLowerCase(CharSequence word, int gender, Transliterator[] targets,
+        StringBuilder[] outs, int count, Scratch sc) {
+
+        if (count == 1) {
+            targets[0].translateLowerCase(word, gender, outs[0], sc);
+            return;
+        }
+
+        // the rules the phonetic form in sc.phonetic was converted with, if any
+        RuleSet<LangToPhonetic> converted = null;
+        String key = null;
+
+        for (int i=0; i<count; i++) {
+            Transliterator t = targets[i];
+            final long start = t.metrics == null ? 0 : System.nanoTime();
+
+            String result = t.lookup(word, gender);
+            if (result == null && t.cache != null) {
+                key = key == null ? word.toString() : key;
+                result = t.cache.get(key, gender);
+                if (result == null && t.fuzzy != null) {
+                    result = t.fuzzyLookup(word, gender);
+                    if (result != null) {
+                        t.cache.put(key, gender, result);
+                    }
+                }
+            } else if (result == null && t.fuzzy != null) {
+                result = t.fuzzyLookup(word, gender);
+            }
+
+            if (result != null) {
+                outs[i].append(result);
+            } else {
+                int steps = 0;
+                if (converted != t.langToPhonetic) {
+                    steps = convertToPhonetic(word, gender, t.langToPhonetic, t.ruleHits, sc);
+                    converted = t.langToPhonetic;
+                }
+                final int from = outs[i].length();
+                steps += phoneticToLang(sc.phonetic, t.phoneticToLang, sc.candidates(t.phoneticToLang.size()), outs[i]);
+                if (t.cache != null) {
+                    t.cache.put(key, gender, outs[i].substring(from));
+                }
+                if (t.metrics != null) {
+                    t.metrics.recordPhonetic(steps);
+                }
+            }
+
+            if (t.metrics != null) {
+                t.metrics.recordWord(System.nanoTime() - start);
+            }
+        }
+    }
+
+    //----------------------------- translate a batch of lines, translating each distinct word once -------------------
+    public List<String> translateLines(Collection<String> lines, int gender, ExecutorService executor) {
+        return Arrays.asList(translateLines(lines.toArray(new String[lines.size()]), gender, executor));
+    }
+
+    /**
+     * Translate lines lazily as they are iterated over, so that the lines of a document of any size may be piped
+     * through one at a time (with Java 8 streams, stream.map() with translateLine() does the same)
+     *
+     * @param lines the lines to translate
+     * @param gender the gender - i.e. Transliterate.UNKNOWN, MALE or FEMALE
+     * @return an iterator over the translated lines, which translates each line when it is returned
+     */
+    public Iterator<String> translateLines(final Iterator<String> lines, final int gender) {
+        return new Iterator<String>() {
+            public boolean hasNext() {
+                return lines.hasNext();
+            }
+
+            public String next() {
+                return translateLine(lines.next(), gender);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    public String[] translateLines(String[] lines, int gender) {
+        return translateLines(lines, gender, null);
+    }
+
+    /**
+     * Translate a batch of lines, with the same result as calling translateLine() on each. The lines are tokenized
+     * once, and each distinct word of the whole batch is translated only once
+     *
+     * @param lines the lines to translate
+     * @param gender the gender - i.e. Transliterate.UNKNOWN, MALE or FEMALE
+     * @param executor the executor to translate the distinct words on in parallel, or null to use the calling thread
+     * @return the translated lines, in the order of the input
+     */
+    public String[] translateLines(String[] lines, int gender, ExecutorService executor) {
+
+        // tokenize each line, and number its distinct words - single characters are delimiters and left as is,
+        // unless they are the whole line. A phrase is translated as it is found, and replaces its first token
+        Map<String, Integer> index = new HashMap<String, Integer>();
+        List<String> words = new ArrayList<String>();
+        String[][] tokens = new String[lines.length][];
+        int[][] wordIds = new int[lines.length][];
+        PhraseTrie phrases = getPhrases(gender);
+        String[] phrase = new String[1];
+
+        for (int i=0; i<lines.length; i++) {
+            String line = lines[i].toLowerCase();
+            StringTokenizer st = new StringTokenizer(line, DELIMITERS, true);
+            int count = st.countTokens();
+            tokens[i] = new String[count];
+            wordIds[i] = new int[count];
+            int pos = 0;
+            int phraseEnd = 0;
+            for (int j=0; j<count; j++) {
+                String t = st.nextToken();
+                tokens[i][j] = t;
+                int from = pos;
+                pos += t.length();
+                if (from < phraseEnd) {
+                    tokens[i][j] = "";
+                    wordIds[i][j] = -1;
+                } else if (phrases != null && DELIMITERS.indexOf(t.charAt(0)) == -1 &&
+                    (phraseEnd = phrases.match(line, from, line.length(), phrase)) != -1) {
+                    tokens[i][j] = phrase[0];
+                    wordIds[i][j] = -1;
+                } else if (t.length() > 1 || count == 1) {
+                    Integer id = index.get(t);
+                    if (id == null) {
+                        id = words.size();
+                        index.put(t, id);
+                        words.add(t);
+                    }
+                    wordIds[i][j] = id;
+                } else {
+                    wordIds[i][j] = -1;
+                }
+            }
+        }
+
+        String[] translated = translateWords(words.toArray(new String[words.size()]), gender, executor);
+        if (metrics != null) {
+            metrics.recordLines(lines.length);
+        }
+        if (DEBUG) {
+            System.out.println("Translated " + lines.length + " lines with " + words.size() + " distinct words");
+        }
+
+        String[] result = new String[lines.length];
+        StringBuilder sb = new StringBuilder();
+        for (int i=0; i<lines.length; i++) {
+            sb.setLength(0);
+            for (int j=0; j<tokens[i].length; j++) {
+                sb.append(wordIds[i][j] == -1 ? tokens[i][j] : translated[wordIds[i][j]]);
+            }
+            result[i] = sb.toString();
+        }
+        return result;
+    }
+
+    private String[] translateWords(final String[] words, final int gender, ExecutorService executor) {
+
+        final String[] translated = new String[words.length];
+        int tasks = executor == null ? 1 :
+            Math.min(Runtime.getRuntime().availableProcessors() * 4, words.length / MIN_WORDS_PER_TASK);
+        if (tasks <= 1) {
+            for (int i=0; i<words.length; i++) {
+                translated[i] = translateWord(words[i], gender);
+            }
+            return translated;
+        }
+
+        List<Future<?>> futures = new ArrayList<Future<?>>(tasks);
+        for (int t=0; t<tasks; t++) {
+            final int from = (int) ((long) words.length * t / tasks);
+            final int to = (int) ((long) words.length * (t + 1) / tasks);
+            futures.add(executor.submit(new Callable<Object>() {
+                public Object call() {
+                    for (int i=from; i<to; i++) {
+                        translated[i] = translateWord(words[i], gender);
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while translating a batch", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Error translating a batch : " + e.getCause(), e.getCause());
+        } finally {
+            for (Future<?> f : futures) {
+                f.cancel(true);
+            }
+        }
+        return translated;
+    }
+
+    // ---------------------------- translate one word from one language to another ------------------------------------
+    public String translateWord(String s, int gender) {
+
+        final long start = metrics == null ? 0 : System.nanoTime();
+        Scratch sc = SCRATCH.get();
+        StringBuilder word = toLowerCase(s, sc.word);
+
+        String result = lookup(word, gender);
+        if (result == null) {
+            if (cache != null) {
+                result = translateCached(word.toString(), gender, sc);
+            } else {
+                StringBuilder sb = new StringBuilder(word.length() * 2);
+                translateUnknown(word, gender, sb, sc);
+                result = sb.toString();
+            }
+        }
+
+        if (metrics != null) {
+            metrics.recordWord(System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    /**
+     * Translate a word into the given buffer, allocating nothing if it is found in the dictionaries
+     *
+     * @param s the word to translate
+     * @param gender the gender - i.e. Transliterate.UNKNOWN, MALE or FEMALE
+     * @param out the buffer to append the translation to
+     */
+    public void translateWord(CharSequence s, int gender, StringBuilder out) {
+        Scratch sc = SCRATCH.get();
+        translateLowerCase(toLowerCase(s, sc.word), gender, out, sc);
+    }
+
+    public void translateWord(CharSequence s, int gender, Appendable out) throws IOException {
+        Scratch sc = SCRATCH.get();
+        sc.result.setLength(0);
+        translateLowerCase(toLowerCase(s, sc.word), gender, sc.result, sc);
+        out.append(sc.result);
+    }
+
+    private void translateLowerCase(CharSequence word, int gender, StringBuilder out, Scratch sc) {
+
+        final long start = metrics == null ? 0 : System.nanoTime();
+        String result = lookup(word, gender);
+        if (result != null) {
+            out.append(result);
+        } else if (cache != null) {
+            out.append(translateCached(word.toString(), gender, sc));
+        } else {
+            translateUnknown(word, gender, out, sc);
+        }
+
+        if (metrics != null) {
+            metrics.recordWord(System.nanoTime() - start);
+        }
+    }
+
+    // ---------------------------- complete a partly typed word from the dictionaries ---------------------------------
+    /**
+     * Find the dictionary words starting with what has been typed so far, for suggestions while typing. The words
+     * are taken from the names dictionary for a male or female gender, else from the other dictionary, and the
+     * shortest are returned first. The dictionaries are indexed on the first call.
+     *
+     * @param prefix the start of a word
+     * @param gender the gender - i.e. Transliterate.UNKNOWN, MALE or FEMALE
+     * @param limit the maximum number of words to return
+     * @return the words found (in lower case) in order, each mapped to its transliteration
+     */
+    public Map<String, String> complete(String prefix, int gender, int limit) {
+        Map<String, String> completions = new LinkedHashMap<String, String>();
+        prefixIndex(gender != Transliterate.UNKNOWN).complete(
+            toLowerCase(prefix, SCRATCH.get().word).toString(), limit, completions);
+        return completions;
+    }
+
+    private PrefixIndex prefixIndex(boolean names) {
+        PrefixIndex index = names ? namesPrefixes : otherPrefixes;
+        if (index == null) {
+            synchronized (this) {
+                index = names ? namesPrefixes : otherPrefixes;
+                if (index == null) {
+                    index = new PrefixIndex(names ? namesMap : otherMap);
+                    if (names) {
+                        namesPrefixes = index;
+                    } else {
+                        otherPrefixes = index;
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    // ---------------------------- translate a word one keystroke at a time - see TypingSession ---------------------
+    /**
+     * @return the translation of the lower case word from the dictionaries, or by fuzzy lookup if enabled, or null if
+     * it is to be translated by the phonetic rules
+     */
+    String translateKnown(CharSequence word, int gender) {
+        String result = lookup(word, gender);
+        if (result == null && fuzzy != null) {
+            result = fuzzyLookup(word, gender);
+        }
+        return result;
+    }
+
+    /**
+     * One step of converting the lower case word between '#' markers in "in" to phonetic, for a TypingSession
+     *
+     * @return the position after the characters consumed
+     */
+    int phoneticStep(CharSequence in, int pos, int gender, int[] candidates, StringBuilder out) {
+        return phoneticStep(in, pos, gender, langToPhonetic, ruleHits, candidates, out);
+    }
+
+    /**
+     * One step of converting the phonetic word to the target language, for a TypingSession
+     *
+     * @return the position after the characters consumed
+     */
+    int langStep(CharSequence phonetic, int pos, int[] candidates, StringBuilder out) {
+        return langStep(phonetic, pos, phoneticToLang, candidates, out);
+    }
+
+    /**
+     * @return a buffer large enough for the candidates of either set of rules
+     */
+    int[] newCandidates() {
+        return new int[Math.max(langToPhonetic.size(), phoneticToLang.size())];
+    }
+
+    /**
+     * The number of characters from a position on which a step of the phonetic (or language) rules depends, i.e.
+     * a step is unaffected by a change at or beyond that many characters past its position, unless the text holds
+     * line terminators
+     *
+     * @param phonetic true for the steps of converting to phonetic, false for those from phonetic to the language
+     * @return the number of characters, or Integer.MAX_VALUE if there is no such limit
+     */
+    int lookahead(boolean phonetic) {
+        int lookahead = 1;
+        if (phonetic) {
+            for (int i=0; i<langToPhonetic.size(); i++) {
+                LangToPhonetic l2p = langToPhonetic.get(i);
+                lookahead = Math.max(lookahead, RuleTrie.lookahead(l2p.getRule(), l2p.getLength()));
+            }
+        } else {
+            for (int i=0; i<phoneticToLang.size(); i++) {
+                PhoneticToLang p2l = phoneticToLang.get(i);
+                lookahead = Math.max(lookahead, RuleTrie.lookahead(p2l.getRule(), p2l.getLength()));
+            }
+        }
+        return lookahead;
+    }
+
+    private String lookup(CharSequence word, int gender) {
+
+        String result = gender == Transliterate.UNKNOWN ? otherMap.get(word) : namesMap.get(word);
+        if (result == null && DEBUG) {
+            System.out.println("Dictionary lookup failed for : " + word);
+        }
+        if (metrics != null) {
+            metrics.recordLookup(gender != Transliterate.UNKNOWN, result != null);
+        }
+        return result;
+    }
+
+    private String translateCached(String word, int gender, Scratch sc) {
+
+        String result = cache.get(word, gender);
+        if (result == null) {
+            StringBuilder sb = new StringBuilder(word.length() * 2);
+            translateUnknown(word, gender, sb, sc);
+            result = sb.toString();
+            cache.put(word, gender, result);
+        }
+        return result;
+    }
+
+    /**
+     * Translate a word not found in the dictionaries, as its nearest dictionary word if fuzzy lookup is enabled and
+     * there is one, else by the phonetic rules
+     */
+    private void translateUnknown(CharSequence word, int gender, StringBuilder out, Scratch sc) {
+        if (fuzzy != null) {
+            String result = fuzzyLookup(word, gender);
+            if (result != null) {
+                out.append(result);
+                return;
+            }
+        }
+
+        int steps = convertToPhonetic(word, gender, langToPhonetic, ruleHits, sc);
+        steps += phoneticToLang(sc.phonetic, phoneticToLang, sc.candidates(phoneticToLang.size()), out);
+        if (metrics != null) {
+            metrics.recordPhonetic(steps);
+        }
+    }
+
+    private String fuzzyLookup(CharSequence word, int gender) {
+        String result = fuzzy.find(word, gender);
+        if (DEBUG) {
+            System.out.println("Fuzzy lookup for : " + word + " = " + result);
+        }
+        if (result != null && metrics != null) {
+            metrics.recordFuzzyHit();
+        }
+        return result;
+    }
+
+    /**
+     * Lower case the given text into the buffer, with the same result as String.toLowerCase(), but without allocating
+     * for the common case of text with no case mappings other than of ASCII letters
+     *
+     * @return the buffer
+     */
+    static StringBuilder toLowerCase(CharSequence s, StringBuilder out) {
+
+        out.setLength(0);
+        boolean asciiOnly = isAsciiOnlyLocale();
+        for (int i=0; i<s.length(); i++) {
+            char c = s.charAt(i);
+            if (!isSimpleCase(c, asciiOnly)) {
+                out.setLength(0);
+                return out.append(s.toString().toLowerCase());
+            }
+            out.append(Character.toLowerCase(c));
+        }
+        return out;
+    }
+
+    /**
+     * @return true unless the default locale has case mappings of its own for ASCII letters
+     */
+    static boolean isAsciiOnlyLocale() {
+        // the locale sensitive mappings of these languages apply to ASCII letters too
+        String language = Locale.getDefault().getLanguage();
+        return !"tr".equals(language) && !"az".equals(language) && !"lt".equals(language);
+    }
+
+    /**
+     * @return true if the character may be lower cased by itself with Character.toLowerCase(), with the same result
+     * as String.toLowerCase() would give in any text
+     */
+    static boolean isSimpleCase(char c, boolean asciiOnly) {
+        char lc = Character.toLowerCase(c);
+        return (lc == c || (c < 0x80 && asciiOnly)) && (c < '\uD800' || c > '\uDFFF');
+    }
+
+    private static int indexOfDelimiter(CharSequence s) {
+        for (int i=0; i<s.length(); i++) {
+            if (DELIMITERS.indexOf(s.charAt(i)) != -1) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // --------------------- rules based translation to / from a language to phonetic ----------------------------------
+
+    /**
+     * Converts the word into sc.phonetic, counting the rules applied in ruleHits if not null
+     *
+     * @return the number of positions at which the rules were matched
+     */
+    private static int convertToPhonetic(CharSequence word, int gender, RuleSet<LangToPhonetic> rules,
+        Metrics.RuleHits ruleHits, Scratch sc) {
+
+        StringBuilder in = sc.in;
+        in.setLength(0);
+        in.append('#').append(word).append('#');
+        StringBuilder out = sc.phonetic;
+        out.setLength(0);
+        int[] candidates = sc.candidates(rules.size());
+
+        int steps = 0;
+        int pos = 0;
+        while (pos < in.length()) {
+            pos = phoneticStep(in, pos, gender, rules, ruleHits, candidates, out);
+            steps++;
+        }
+
+        if (DEBUG) {
+            System.out.println("convertToPhonetic(" + word + ") = " + out.toString());
+        }
+        return steps;
+    }
+
+    /**
+     * Appends the translation of the phonetic word to out, dropping the '#' word boundary markers
+     *
+     * @return the number of positions at which the rules were matched
+     */
+    private static int phoneticToLang(CharSequence word, RuleSet<PhoneticToLang> rules, int[] candidates,
+        StringBuilder out) {
+
+        final int start = out.length();
+        int steps = 0;
+        int pos = 0;
+        while (pos < word.length()) {
+            pos = langStep(word, pos, rules, candidates, out);
+            steps++;
+        }
+
+        if (DEBUG) {
+            System.out.println("phoneticToLang(" + word + ") = " + out.substring(start));
+        }
+        return steps;
+    }
+
+    /**
+     * Appends the phonetic of the first rule for the gender matching in[pos..] to out, else the character at pos
+     *
+     * @return the position after the characters consumed
+     */
+    private static int phoneticStep(CharSequence in, int pos, int gender, RuleSet<LangToPhonetic> rules,
+        Metrics.RuleHits ruleHits, int[] candidates, StringBuilder out) {
+
+        int count = rules.match(in, pos, candidates);
+        for (int i=0; i<count; i++) {
+            LangToPhonetic l2p = rules.get(candidates[i]);
+            if (gender == l2p.getGender() || l2p.getGender() == Transliterate.UNKNOWN) {
+                if (DEBUG) {
+                    System.out.println("In : " + in.subSequence(pos, in.length()) + " matches : " + l2p.getRule() + " with : " + l2p.getPhonetic());
+                }
+                appendPhoneticWithCorrection(out, l2p.getPhonetic());
+                if (ruleHits != null) {
+                    ruleHits.increment(candidates[i]);
+                }
+                return Math.min(pos + l2p.getLength(), in.length());
+            }
+        }
+        out.append(in.charAt(pos));
+        return pos + 1;
+    }
+
+    /**
+     * Appends the language text of the first rule matching word[pos..] to out, else the character at pos, dropping
+     * the '#' word boundary markers
+     *
+     * @return the position after the characters consumed
+     */
+    private static int langStep(CharSequence word, int pos, RuleSet<PhoneticToLang> rules, int[] candidates,
+        StringBuilder out) {
+
+        // rules are tried in order and the first match wins, so only the lowest candidate is of interest
+        if (rules.match(word, pos, candidates) > 0) {
+            PhoneticToLang p2l = rules.get(candidates[0]);
+            if (DEBUG) {
+                System.out.println("In : " + word.subSequence(pos, word.length()) + " matches : " + p2l.getRule() + " with : " + p2l.getLang());
+            }
+            String lang = p2l.getLang();
+            if (lang != null) {
+                for (int i=0; i<lang.length(); i++) {
+                    if (lang.charAt(i) != '#') {
+                        out.append(lang.charAt(i));
+                    }
+                }
+            }
+            return Math.min(pos + p2l.getLength(), word.length());
+        }
+        char c = word.charAt(pos);
+        if (c != '#') {
+            out.append(c);
+        }
+        return pos + 1;
+    }
+
+    private static void appendPhoneticWithCorrection(StringBuilder out, String ph) {
+        final int len = out.length();
+        if (len > 0) {
+            if (END_VOVELS.indexOf(out.charAt(len-1)) == -1) {   // not a vowel
+                if (ph.length() > 0) {
+                    if (START_VOVELS.indexOf(ph.charAt(0)) == -1) { // not a vowel
+                        out.append(".a");
+                    }
+                } else {
+                    out.append(".a");
+                }
+            }
+        }
+        out.append(ph);
+    }
+
+    /**
+     * The approximate lookup of words in the names and other dictionaries
+     */
+    private static final class FuzzyLookup {
+
+        private final Dictionary namesMap;
+        private final Dictionary otherMap;
+        private final int maxDistance;
+        private final long timeoutNanos;
+        private final FuzzyIndex namesIndex;
+        private final FuzzyIndex otherIndex;
+
+        private FuzzyLookup(Dictionary namesMap, Dictionary otherMap, int maxDistance, long timeoutNanos) {
+            this.namesMap = namesMap;
+            this.otherMap = otherMap;
+            this.maxDistance = maxDistance;
+            this.timeoutNanos = timeoutNanos;
+            this.namesIndex = new FuzzyIndex(namesMap.keys(), maxDistance);
+            this.otherIndex = new FuzzyIndex(otherMap.keys(), maxDistance);
+        }
+
+        /**
+         * @return the translation of the nearest dictionary word, or null if there is none
+         */
+        private String find(CharSequence word, int gender) {
+            int distance = Math.min(maxDistance, (word.length() - 1) / 3);
+            if (distance <= 0) {
+                return null;
+            }
+            boolean names = gender != Transliterate.UNKNOWN;
+            String match = (names ? namesIndex : otherIndex).find(word.toString(), distance,
+                System.nanoTime() + timeoutNanos);
+            return match == null ? null : (names ? namesMap : otherMap).get(match);
+        }
+    }
+
+    /**
+     * The buffers reused by the translations on each thread. Each level of a translation (line, word, phonetic) has
+     * its own buffer, as a line translates each of its words in turn
+     */
+    private static final class Scratch {
+
+        private final StringBuilder line = new StringBuilder(256);
+        private final StringBuilder word = new StringBuilder(64);
+        private final StringBuilder in = new StringBuilder(64);
+        private final StringBuilder phonetic = new StringBuilder(128);
+        private final StringBuilder result = new StringBuilder(256);
+        /** The single target of translateLine(), passed on as the targets of the multi-target implementation */
+        private final Transliterator[] targets = new Transliterator[1];
+        private final StringBuilder[] outs = new StringBuilder[1];
+        private int[] candidates = new int[0];
+        /** The targets and their buffers taking part in translating a word, where some are within a phrase */
+        private Transliterator[] activeTargets = new Transliterator[0];
+        private StringBuilder[] activeOuts = new StringBuilder[0];
+        private int[] done = new int[0];
+        private final String[] phrase = new String[1];
+
+        private int[] done(int count) {
+            if (done.length < count) {
+                done = new int[count];
+                activeTargets = new Transliterator[count];
+                activeOuts = new StringBuilder[count];
+            }
+            return done;
+        }
+
+        private int[] candidates(int size) {
+            if (candidates.length < size) {
+                candidates = new int[size];
+            }
+            return candidates;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * A Sinhala, Tamil and English Transliterator
+ *
+ * Copyright (c) 2010 Asankha Chamath Perera. (http://www.asankha.com). All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asankha.translit;
+
+/**
+ * Transliterates a word as it is typed, one keystroke at a time, with the same result as translateWord() on the
+ * whole of the text typed so far, e.g. for an input method.
+ *
+ * The session remembers the position of each step of the phonetic rules from the previous keystroke, and re-applies
+ * only the steps which could have seen the characters changed - i.e. those within the longest rule of the end of the
+ * word - and the steps of the rules to the language which could have seen the phonetic text so changed. Hence the
+ * work of each keystroke does not grow with the length of the word. The dictionaries are still looked up for the
+ * whole word on each keystroke, as is the nearest dictionary word if fuzzy lookup is enabled.
+ *
+ * A session is not thread safe, and is meant to be used by the one thread handling an input field.
+ *
+ * e.g.
+ * TypingSession session = new TypingSession(transliterator, Transliterate.MALE);
+ * session.append('a');         // the translation of "a"
+ * session.append("sankha");    // the translation of "asankha"
+ * session.delete(1);           // the translation of "asankh"
+ *
+ * @author asankha
+ */
+public final class TypingSession {
+
+    /** Marks the rule steps as being valid for the current word */
+    private static final int UNCHANGED = Integer.MAX_VALUE;
+
+    private final Transliterator transliterator;
+    private final int gender;
+    private final int phoneticLookahead;
+    private final int langLookahead;
+    private final int[] candidates;
+
+    /** The text typed so far */
+    private final StringBuilder text = new StringBuilder(32);
+    /** The lower case word between '#' word boundary markers, as input to the rules */
+    private final StringBuilder in = new StringBuilder(34).append("##");
+    /** The number of characters of text which need the whole of it to be lower cased or any change to be re-read */
+    private int irregular;
+    private boolean asciiOnly = Transliterator.isAsciiOnlyLocale();
+    /** The first position of "in" changed since the rules were last applied */
+    private int changed = 0;
+
+    /** The position in "in" at which each phonetic step started, and the length of the phonetic text before it */
+    private int[] phoneticPos = new int[16];
+    private int[] phoneticLen = new int[16];
+    private int phoneticSteps;
+    private final StringBuilder phonetic = new StringBuilder(64);
+
+    /** The position in the phonetic text at which each language step started, and the length of result before it */
+    private int[] langPos = new int[16];
+    private int[] langLen = new int[16];
+    private int langSteps;
+    private final StringBuilder result = new StringBuilder(64);
+
+    /**
+     * @param transliterator the transliterator to use
+     * @param gender the gender - i.e. Transliterate.UNKNOWN, MALE or FEMALE
+     */
+    public TypingSession(Transliterator transliterator, int gender) {
+        this.transliterator = transliterator;
+        this.gender = gender;
+        this.phoneticLookahead = transliterator.lookahead(true);
+        this.langLookahead = transliterator.lookahead(false);
+        this.candidates = transliterator.newCandidates();
+    }
+
+    /**
+     * @return the translation of the text after appending the given character
+     */
+    public String append(char c) {
+        edit(text.length(), String.valueOf(c), 0);
+        return getResult();
+    }
+
+    /**
+     * @return the translation of the text after appending the given characters
+     */
+    public String append(CharSequence s) {
+        edit(text.length(), s, 0);
+        return getResult();
+    }
+
+    /**
+     * @param count the number of characters to delete from the end of the text, e.g. 1 for a backspace
+     * @return the translation of the text after deleting the characters
+     */
+    public String delete(int count) {
+        if (count < 0 || count > text.length()) {
+            throw new IllegalArgumentException("Cannot delete " + count + " characters of " + text.length());
+        }
+        edit(text.length() - count, "", 0);
+        return getResult();
+    }
+
+    /**
+     * Replace the text, e.g. after an edit in the middle of the word or a paste, re-applying the rules from the first
+     * character changed
+     *
+     * @return the translation of the new text
+     */
+    public String setText(CharSequence s) {
+        int keep = 0;
+        int max = Math.min(s.length(), text.length());
+        while (keep < max && s.charAt(keep) == text.charAt(keep)) {
+            keep++;
+        }
+        edit(keep, s, keep);
+        return getResult();
+    }
+
+    /**
+     * @return the text typed so far
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * @return the translation of the text typed so far, as translateWord() would give
+     */
+    public String getResult() {
+        String known = transliterator.translateKnown(in.subSequence(1, in.length() - 1), gender);
+        if (known != null) {
+            return known;
+        }
+        if (changed != UNCHANGED) {
+            applyRules();
+            changed = UNCHANGED;
+        }
+        return result.toString();
+    }
+
+    /**
+     * Replace text[keep..] with s[from..], and the lower case word in "in" to match
+     */
+    private void edit(int keep, CharSequence s, int from) {
+
+        final int before = irregular;
+        for (int i=keep; i<text.length(); i++) {
+            if (isIrregular(text.charAt(i))) {
+                irregular--;
+            }
+        }
+        text.setLength(keep);
+        for (int i=from; i<s.length(); i++) {
+            char c = s.charAt(i);
+            text.append(c);
+            if (isIrregular(c)) {
+                irregular++;
+            }
+        }
+
+        if (before == 0 && irregular == 0 && asciiOnly == Transliterator.isAsciiOnlyLocale()) {
+            in.setLength(keep + 1);
+            for (int i=keep; i<text.length(); i++) {
+                in.append(Character.toLowerCase(text.charAt(i)));
+            }
+            in.append('#');
+            changed = Math.min(changed, keep + 1);
+        } else {
+            // the lower case of a character may depend on the others, and the rules on any line terminator after them
+            asciiOnly = Transliterator.isAsciiOnlyLocale();
+            irregular = 0;
+            for (int i=0; i<text.length(); i++) {
+                if (isIrregular(text.charAt(i))) {
+                    irregular++;
+                }
+            }
+            in.setLength(0);
+            in.append('#').append(text.toString().toLowerCase()).append('#');
+            changed = 0;
+        }
+    }
+
+    private boolean isIrregular(char c) {
+        return !Transliterator.isSimpleCase(c, asciiOnly) || RuleTrie.LINE_TERMINATORS.indexOf(c) != -1;
+    }
+
+    /**
+     * Re-apply the steps of the rules which could have seen the characters changed since they were last applied
+     */
+    private void applyRules() {
+
+        // keep the steps which only saw characters before the change, and all they consumed
+        int k = phoneticSteps;
+        while (k > 0 && phoneticPos[k-1] > changed - phoneticLookahead) {
+            k--;
+        }
+        // the phonetic text is unchanged up to the end of the steps kept
+        final int phoneticChanged = phoneticLen[k];
+        int pos = phoneticPos[k];
+        phonetic.setLength(phoneticChanged);
+        while (pos < in.length()) {
+            pos = transliterator.phoneticStep(in, pos, gender, candidates, phonetic);
+            if (++k == phoneticPos.length) {
+                phoneticPos = grow(phoneticPos);
+                phoneticLen = grow(phoneticLen);
+            }
+            phoneticPos[k] = pos;
+            phoneticLen[k] = phonetic.length();
+        }
+        phoneticSteps = k;
+
+        k = langSteps;
+        while (k > 0 && langPos[k-1] > phoneticChanged - langLookahead) {
+            k--;
+        }
+        pos = langPos[k];
+        result.setLength(langLen[k]);
+        while (pos < phonetic.length()) {
+            pos = transliterator.langStep(phonetic, pos, candidates, result);
+            if (++k == langPos.length) {
+                langPos = grow(langPos);
+                langLen = grow(langLen);
+            }
+            langPos[k] = pos;
+            langLen[k] = result.length();
+        }
+        langSteps = k;
+    }
+
+    private static int[] grow(int[] a) {
+        int[] b = new int[a.length * 2];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+}
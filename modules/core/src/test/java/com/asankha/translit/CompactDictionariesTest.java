@@ -0,0 +1,90 @@
+package com.asankha.translit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.*;
+
+public class CompactDictionariesTest extends TestCase {
+
+    public CompactDictionariesTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(CompactDictionariesTest.class);
+    }
+
+    public void testSameAsMapDictionary() throws Exception {
+        ResourceLoader loader = new ResourceLoader(getClass().getClassLoader(), null);
+        for (String filename : new String[] {"en-to-si.txt", "en-to-ta.txt", "si-to-ta.txt"}) {
+            List<Map<String, String>> maps = new ArrayList<Map<String, String>>();
+            for (int i=0; i<4; i++) {
+                maps.add(new HashMap<String, String>());
+            }
+            loader.loadMappingFile(filename, maps.get(0), maps.get(1), maps.get(2), maps.get(3));
+            CompactDictionaries compact = new CompactDictionaries(maps.get(0), maps.get(1), maps.get(2), maps.get(3));
+
+            for (int i=0; i<4; i++) {
+                Map<String, String> map = maps.get(i);
+                Dictionary d = compact.getDictionary(i < 2, i % 2 == 0);
+                assertEquals(filename, map.size(), d.size());
+                assertEquals(filename, map.keySet(), new HashSet<String>(Arrays.asList(d.keys())));
+                Set<String> phrases = new HashSet<String>();
+                for (String key : map.keySet()) {
+                    if (key.indexOf(' ') != -1) {
+                        phrases.add(key);
+                    }
+                }
+                assertEquals(filename, phrases, new HashSet<String>(Arrays.asList(d.phrases())));
+                for (Map.Entry<String, String> e : map.entrySet()) {
+                    assertEquals(e.getKey(), e.getValue(), d.get(new StringBuilder(e.getKey())));
+                    assertEquals(map.get(e.getKey() + "x"), d.get(e.getKey() + "x"));
+                }
+            }
+        }
+    }
+
+    public void testEngines() throws Exception {
+        Engines plain = new Engines(null, null, 0);
+        Engines compact = new Engines(null, null, 0, null, 0, 0, true);
+        String[] lines = {"asankha perera, galle", "අසන්ඛ පෙරේරා", "அசங்க பெரேரா", "colombo kumari zorangaxe"};
+
+        for (int src=Transliterate.ENGLISH; src<=Transliterate.TAMIL; src++) {
+            for (int dst=Transliterate.ENGLISH; dst<=Transliterate.TAMIL; dst++) {
+                if (src == dst) {
+                    continue;
+                }
+                for (String line : lines) {
+                    for (int gender=Transliterate.UNKNOWN; gender<=Transliterate.FEMALE; gender++) {
+                        assertEquals(line, plain.get(src, dst).translateLine(line, gender),
+                            compact.get(src, dst).translateLine(line, gender));
+                    }
+                }
+            }
+        }
+    }
+
+    public void testEncoding() {
+        Map<String, String> names = new HashMap<String, String>();
+        names.put("a\u0000b", "වික්‍ර");
+        names.put("café", "கකÿ்");
+        names.put("", "‍");
+        Map<String, String> reverse = new HashMap<String, String>();
+        for (Map.Entry<String, String> e : names.entrySet()) {
+            reverse.put(e.getValue(), e.getKey());
+        }
+        Map<String, String> none = Collections.emptyMap();
+        CompactDictionaries compact = new CompactDictionaries(names, none, reverse, none);
+
+        assertEquals(6, compact.strings());
+        for (Map.Entry<String, String> e : names.entrySet()) {
+            assertEquals(e.getValue(), compact.getDictionary(true, true).get(e.getKey()));
+            assertEquals(e.getKey(), compact.getDictionary(false, true).get(e.getValue()));
+        }
+        assertNull(compact.getDictionary(true, true).get("a"));
+        assertNull(compact.getDictionary(true, true).get("cafés"));
+        assertNull(compact.getDictionary(true, false).get(""));
+    }
+}
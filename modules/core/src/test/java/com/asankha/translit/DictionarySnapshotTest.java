@@ -0,0 +1,84 @@
+package com.asankha.translit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class DictionarySnapshotTest extends TestCase {
+
+    public DictionarySnapshotTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(DictionarySnapshotTest.class);
+    }
+
+    public void testSnapshotMatchesMappingFile() throws Exception {
+        File file = File.createTempFile("translit", ".snapshot");
+        try {
+            DictionarySnapshot.write(file, null);
+            DictionarySnapshot snapshot = DictionarySnapshot.open(file);
+
+            Map<String, String> names = new HashMap<String, String>();
+            Map<String, String> other = new HashMap<String, String>();
+            new ResourceLoader(getClass().getClassLoader(), null).loadMappingFile(
+                "si-to-ta.txt", null, null, names, other);
+
+            Dictionary d = snapshot.getDictionary(Transliterate.TAMIL, Transliterate.SINHALA, true);
+            assertEquals(names.size(), d.size());
+            for (Map.Entry<String, String> e : names.entrySet()) {
+                assertEquals(e.getValue(), d.get(e.getKey()));
+            }
+            assertNull(d.get("perera"));
+
+            Map<String, String> enOther = new HashMap<String, String>();
+            new ResourceLoader(getClass().getClassLoader(), null).loadMappingFile(
+                "en-to-si.txt", null, enOther, null, null);
+            Set<String> phrases = new HashSet<String>(Arrays.asList(new MapDictionary(enOther).phrases()));
+            assertTrue(phrases.contains("king coconut"));
+            assertEquals(phrases, new HashSet<String>(Arrays.asList(
+                snapshot.getDictionary(Transliterate.ENGLISH, Transliterate.SINHALA, false).phrases())));
+            assertEquals(other.size(), snapshot.getDictionary(Transliterate.TAMIL, Transliterate.SINHALA, false).size());
+
+            Transliterator t = new Transliterator(Transliterate.ENGLISH, Transliterate.SINHALA,
+                snapshot.getDictionary(Transliterate.ENGLISH, Transliterate.SINHALA, true),
+                snapshot.getDictionary(Transliterate.ENGLISH, Transliterate.SINHALA, false),
+                new CompiledRulesEn(), new CompiledPhoneticSi());
+            assertEquals("\"පෙරේරා\" අසන්ඛ-චමත්, #පෙරේරා#",
+                t.translateLine("\"Perera\" asankha-chamath, #Perera#", Transliterate.MALE));
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testMappingFileChangedSinceSnapshot() throws Exception {
+        File snapshotFile = File.createTempFile("translit", ".snapshot");
+        File dir = TestFiles.createDirectory("en-to-si.txt", "Perera,පෙරෙරා,1,1\n");
+        try {
+            DictionarySnapshot.write(snapshotFile, null);
+            DictionarySnapshot snapshot = DictionarySnapshot.open(snapshotFile);
+            ResourceLoader loader = new ResourceLoader(getClass().getClassLoader(), dir);
+            assertFalse(snapshot.isCurrent(Transliterate.SINHALA, Transliterate.ENGLISH, loader));
+            assertTrue(snapshot.isCurrent(Transliterate.ENGLISH, Transliterate.TAMIL, loader));
+
+            // the changed mapping file is used instead of the snapshot
+            Engines engines = new Engines(dir, snapshotFile, 0);
+            assertEquals("පෙරෙරා", engines.get(
+                Transliterate.ENGLISH, Transliterate.SINHALA).translateWord("perera", Transliterate.MALE));
+            assertEquals(Transliterate.translateWord("perera", Transliterate.ENGLISH, Transliterate.TAMIL,
+                Transliterate.MALE), engines.get(Transliterate.ENGLISH, Transliterate.TAMIL).translateWord(
+                "perera", Transliterate.MALE));
+        } finally {
+            snapshotFile.delete();
+            TestFiles.delete(dir);
+        }
+    }
+}
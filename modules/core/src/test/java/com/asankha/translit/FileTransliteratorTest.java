@@ -0,0 +1,39 @@
+package com.asankha.translit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+public class FileTransliteratorTest extends TestCase {
+
+    public FileTransliteratorTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(FileTransliteratorTest.class);
+    }
+
+    public void testOrderPreserved() throws Exception {
+        Transliterator t = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA);
+        String[] words = {"asankha perera", "kumarasiri", "", "avanka", "\"Perera\" chamath, #galle#"};
+
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        String nl = System.getProperty("line.separator");
+        for (int i=0; i<10000; i++) {
+            String line = words[i % words.length] + (i % 7 == 0 ? " " + i : "");
+            input.append(line).append('\n');
+            expected.append(t.translateLine(line, Transliterate.MALE)).append(nl);
+        }
+
+        StringWriter out = new StringWriter();
+        long lines = new FileTransliterator(t, Transliterate.MALE, 4).transliterate(
+            new StringReader(input.toString()), out);
+        assertEquals(10000, lines);
+        assertEquals(expected.toString(), out.toString());
+    }
+}
@@ -0,0 +1,66 @@
+package com.asankha.translit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class FuzzyIndexTest extends TestCase {
+
+    private static final String[] WORDS = {"perera", "kumara", "kumari", "asanka", "chamath", "bandara"};
+
+    public FuzzyIndexTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(FuzzyIndexTest.class);
+    }
+
+    public void testFindSameAsBruteForce() {
+        FuzzyIndex index = new FuzzyIndex(WORDS, 2);
+        String[] inputs = {"pererra", "perea", "kumarz", "asankha", "chmaath", "bandaraya", "xyz", "kumra", "ab"};
+        long deadline = System.nanoTime() + 1000000000L;
+
+        for (String in : inputs) {
+            for (int distance=0; distance<=2; distance++) {
+                String expected = null;
+                int best = distance + 1;
+                for (String w : WORDS) {
+                    int d = FuzzyIndex.distance(in, w, 10);
+                    if (d < best || (d == best && d <= distance && w.compareTo(expected) < 0)) {
+                        best = d;
+                        expected = w;
+                    }
+                }
+                assertEquals(in + " @ " + distance, expected, index.find(in, distance, deadline));
+            }
+        }
+    }
+
+    public void testDeadline() {
+        FuzzyIndex index = new FuzzyIndex(WORDS, 2);
+        assertEquals("perera", index.find("pererra", 2, System.nanoTime() + 1000000000L));
+        assertNull(index.find("pererra", 2, System.nanoTime() - 1));
+    }
+
+    public void testDistance() {
+        assertEquals(1, FuzzyIndex.distance("perera", "pererra", 2));
+        assertEquals(1, FuzzyIndex.distance("chamath", "chmaath", 2));
+        assertEquals(2, FuzzyIndex.distance("asanka", "asankha", 2) + FuzzyIndex.distance("a", "b", 2));
+        assertTrue(FuzzyIndex.distance("perera", "kumara", 2) > 2);
+    }
+
+    public void testTransliterator() throws Exception {
+        Transliterator t = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA);
+        Transliterator f = t.withFuzzyLookup(2, 1000000000L);
+        assertEquals(t.translateWord("perera", Transliterate.MALE), f.translateWord("pererra", Transliterate.MALE));
+        assertEquals(t.translateWord("perera", Transliterate.MALE) + ", " + t.translateWord("xq", Transliterate.MALE),
+            f.translateLine("pererra, xq", Transliterate.MALE));
+        assertEquals(t.translateWord("zorangaxe", Transliterate.MALE), f.translateWord("zorangaxe", Transliterate.MALE));
+
+        // a lookup out of time falls back to the phonetic rules
+        Transliterator timedOut = t.withFuzzyLookup(2, -1);
+        assertEquals(t.translateWord("pererra", Transliterate.MALE),
+            timedOut.translateWord("pererra", Transliterate.MALE));
+    }
+}
@@ -0,0 +1,70 @@
+package com.asankha.translit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class MetricsTest extends TestCase {
+
+    public MetricsTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(MetricsTest.class);
+    }
+
+    public void testCounts() throws Exception {
+        Transliterator plain = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA);
+        Metrics metrics = new Metrics("en-si", true);
+        Transliterator t = plain.withMetrics(metrics);
+        assertSame(metrics, t.getMetrics());
+
+        assertEquals(plain.translateLine("perera perera, zorangaxe", Transliterate.MALE),
+            t.translateLine("perera perera, zorangaxe", Transliterate.MALE));
+        t.translateWord("zorangaxe", Transliterate.UNKNOWN);
+
+        Metrics.Snapshot s = metrics.snapshot();
+        assertEquals(1, s.getLineCount());
+        assertEquals(4, s.getWordCount());
+        assertEquals(2, s.getNamesHitCount());
+        assertEquals(0, s.getOtherHitCount());
+        assertEquals(2, s.getPhoneticCount());
+        assertTrue(s.getRuleStepCount() > 0);
+
+        long words = 0;
+        for (long c : s.getLatencyHistogram()) {
+            words += c;
+        }
+        assertEquals(4, words);
+        assertTrue(s.getLatencyPercentileNanos(99) >= s.getLatencyPercentileNanos(50));
+
+        long applied = 0;
+        for (long c : s.getRuleHitCounts()) {
+            applied += c;
+        }
+        assertTrue(applied > 0);
+        assertEquals(s.getRules().length, metrics.getRuleHitCounts().length);
+
+        metrics.reset();
+        assertEquals(0, metrics.getWordCount());
+        assertEquals(0, metrics.getLatency99thPercentileNanos());
+    }
+
+    public void testPhoneticCountsOnlyRules() throws Exception {
+        Transliterator plain = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA);
+        Metrics metrics = new Metrics("en-si", false);
+        Transliterator t = plain.withCache(16).withFuzzyLookup(1, 1000000000L).withMetrics(metrics);
+
+        // the second is found in the cache, and the third by fuzzy lookup
+        t.translateWord("zorangaxe", Transliterate.MALE);
+        t.translateWord("zorangaxe", Transliterate.MALE);
+        t.translateWord("pererra", Transliterate.MALE);
+        assertEquals(1, metrics.getPhoneticCount());
+        assertEquals(1, metrics.getFuzzyHitCount());
+
+        // a typing session looks up the dictionaries on each keystroke, but translates no whole word by the rules
+        new TypingSession(t, Transliterate.MALE).append("per");
+        assertEquals(1, metrics.getPhoneticCount());
+    }
+}
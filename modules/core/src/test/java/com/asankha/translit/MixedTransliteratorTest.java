@@ -0,0 +1,67 @@
+package com.asankha.translit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class MixedTransliteratorTest extends TestCase {
+
+    private static final String[] LINES = {
+        "asankha perera, 42 (galle)", "අසන්ඛ පෙරේරා, 42 (ගාල්ල)", "அசங்க பெரேரா, 42",
+        "a", "42", ",", "Perera", "king coconut"
+    };
+
+    public MixedTransliteratorTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(MixedTransliteratorTest.class);
+    }
+
+    public void testDetectLanguage() {
+        assertEquals(Transliterate.ENGLISH, MixedTransliterator.detectLanguage("42nd"));
+        assertEquals(Transliterate.SINHALA, MixedTransliterator.detectLanguage("(අසන්ඛ"));
+        assertEquals(Transliterate.TAMIL, MixedTransliterator.detectLanguage("பெரேரா"));
+        assertEquals(-1, MixedTransliterator.detectLanguage("42"));
+    }
+
+    public void testSameAsTranslateLineForOneLanguage() throws Exception {
+        for (int dst=Transliterate.ENGLISH; dst<=Transliterate.TAMIL; dst++) {
+            MixedTransliterator mixed = Transliterate.getMixedTransliterator(dst);
+            for (String line : LINES) {
+                int src = MixedTransliterator.detectLanguage(line);
+                src = src == -1 ? Transliterate.ENGLISH : src;
+                for (int gender=Transliterate.UNKNOWN; gender<=Transliterate.FEMALE; gender++) {
+                    String expected = src == dst ? line : Transliterate.translateLine(line, src, dst, gender);
+                    assertEquals(line, expected, mixed.translateLine(line, gender));
+                    assertEquals(line, expected, Transliterate.translateLine(line, Transliterate.AUTO, dst, gender));
+                }
+            }
+        }
+    }
+
+    public void testMixed() throws Exception {
+        int m = Transliterate.MALE;
+        String mixed = Transliterate.translateLine("asankha ", Transliterate.ENGLISH, Transliterate.SINHALA, m) +
+            Transliterate.translateLine("பெரேரா, 42 ", Transliterate.TAMIL, Transliterate.SINHALA, m) + "අසන්ඛ";
+        assertEquals(mixed, Transliterate.translateLine("Asankha பெரேரா, 42 අසන්ඛ", Transliterate.AUTO,
+            Transliterate.SINHALA, m));
+
+        assertEquals("Perera, " + Transliterate.translateWord("අසන්ඛ", Transliterate.SINHALA, Transliterate.ENGLISH, m),
+            Transliterate.translateLine("Perera, අසන්ඛ", Transliterate.AUTO, Transliterate.ENGLISH, m));
+        assertEquals("அசங்க", Transliterate.translateWord("அசங்க", Transliterate.AUTO, Transliterate.TAMIL, m));
+        assertEquals(Transliterate.translateWord("perera", Transliterate.ENGLISH, Transliterate.TAMIL, m),
+            Transliterate.translateWord("Perera", Transliterate.AUTO, Transliterate.TAMIL, m));
+
+        assertSame(Transliterate.getMixedTransliterator(Transliterate.TAMIL),
+            Transliterate.getMixedTransliterator(Transliterate.TAMIL));
+
+        try {
+            new MixedTransliterator(new Transliterator[] {
+                Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA),
+                Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.TAMIL)});
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {}
+    }
+}
@@ -0,0 +1,109 @@
+package com.asankha.translit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.*;
+import java.util.*;
+
+public class PhraseTrieTest extends TestCase {
+
+    private static final String MAPPINGS =
+        "A b,AB,0,0\n" + "A b c d,ABCD,0,0\n" + "C e f,CEF,0,0\n" + "B c,BC,0,0\n" + "Perera,පෙරෙරා,0,0\n" +
+        "King coconut,තැඹිලි,0,0\n";
+
+    public PhraseTrieTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(PhraseTrieTest.class);
+    }
+
+    public void testMatch() {
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("a b", "AB");
+        map.put("a b c d", "ABCD");
+        map.put("c e f", "CEF");
+        map.put("a  b", "-");
+        map.put("a,b", "-");
+        map.put("ab", "-");
+        PhraseTrie trie = PhraseTrie.build(new MapDictionary(map));
+        assertEquals(3, trie.size());
+        assertNull(PhraseTrie.build(new MapDictionary(Collections.singletonMap("ab", "-"))));
+
+        String s = "x a b c d a b c e f a bc a b";
+        String[] value = new String[1];
+        assertEquals(-1, trie.match(s, 0, s.length(), value));
+        assertEquals(9, trie.match(s, 2, s.length(), value));
+        assertEquals("ABCD", value[0]);
+        assertEquals(13, trie.match(s, 10, s.length(), value));
+        assertEquals("AB", value[0]);
+        assertEquals(19, trie.match(s, 14, s.length(), value));
+        assertEquals("CEF", value[0]);
+        assertEquals(-1, trie.match(s, 20, s.length(), value));
+        assertEquals(s.length(), trie.match(s, s.length() - 3, s.length(), value));
+        assertEquals(-1, trie.match(s, 2, 3, value));
+
+        assertTrue(trie.isPrefix("a b ", 0, 4));
+        assertTrue(trie.isPrefix("x a b c ", 2, 8));
+        assertFalse(trie.isPrefix("a b c e ", 0, 8));
+        assertFalse(trie.isPrefix("a  ", 0, 3));
+        assertFalse(trie.isPrefix("a, ", 0, 3));
+        assertFalse(trie.isPrefix("c e f ", 0, 6));
+    }
+
+    public void testTranslateLine() throws Exception {
+        File dir = TestFiles.createDirectory("en-to-si.txt", MAPPINGS);
+
+        try {
+            Transliterator si = Transliterator.newInstance(Transliterate.ENGLISH, Transliterate.SINHALA, dir);
+            Transliterator ta = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.TAMIL);
+            int u = Transliterate.UNKNOWN;
+            assertEquals("abcd ab cef, පෙරෙරා's", si.translateLine("A b c d a b c e f, perera's", u));
+            assertEquals("bc e f", si.translateLine("b c e f", u));
+            assertEquals("a  b", si.translateLine("a  b", u));
+            assertEquals("තැඹිලි", si.translateLine("king coconut", u));
+            assertEquals(si.translateWord("king", u) + " " + si.translateWord("coconut", Transliterate.MALE),
+                si.translateLine("king coconut", Transliterate.MALE));
+
+            // the multi target, batch and streaming translations are the same as that of each line
+            String[] words = {"a", "b", "c", "d", "e", "f", "king", "coconut", "perera", "x"};
+            String[] delimiters = {" ", " ", " ", "  ", ", ", "'", "(", "\n"};
+            Random r = new Random(11);
+            String[] lines = new String[500];
+            for (int i=0; i<lines.length; i++) {
+                StringBuilder sb = new StringBuilder();
+                for (int j=r.nextInt(12); j>=0; j--) {
+                    sb.append(words[r.nextInt(words.length)]).append(j > 0 ? delimiters[r.nextInt(7)] : "");
+                }
+                lines[i] = sb.toString();
+            }
+
+            Transliterator[] targets = {si, ta};
+            String[] batch = si.translateLines(lines, u);
+            StringBuilder text = new StringBuilder();
+            StringBuilder expected = new StringBuilder();
+            for (int i=0; i<lines.length; i++) {
+                String line = lines[i];
+                String[] multi = Transliterator.translateLine(line, u, targets);
+                assertEquals(line, si.translateLine(line, u), multi[0]);
+                assertEquals(line, ta.translateLine(line, u), multi[1]);
+                assertEquals(line, si.translateLine(line, u), batch[i]);
+                text.append(line).append(delimiters[7]);
+                expected.append(si.translateLine(line, u)).append(delimiters[7]);
+            }
+
+            StringWriter out = new StringWriter();
+            Writer writer = new TransliteratingWriter(out, si, u);
+            for (int i=0; i<text.length(); i++) {
+                writer.write(text.charAt(i));
+            }
+            writer.close();
+            assertEquals(expected.toString(), out.toString());
+        } finally {
+            TestFiles.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.asankha.translit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.*;
+
+public class PrefixIndexTest extends TestCase {
+
+    private static final String[] WORDS = {"perera", "peiris", "pere", "kumara", "kumari", "kumarasiri", "kuma", "a"};
+
+    public PrefixIndexTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(PrefixIndexTest.class);
+    }
+
+    public void testCompleteSameAsBruteForce() {
+        Map<String, String> map = new HashMap<String, String>();
+        for (String w : WORDS) {
+            map.put(w, w.toUpperCase());
+        }
+        PrefixIndex index = new PrefixIndex(new MapDictionary(map));
+        String[] prefixes = {"", "p", "per", "pere", "perera", "pereras", "kumar", "kuma", "a", "b", "z"};
+
+        for (String prefix : prefixes) {
+            for (int limit=0; limit<=WORDS.length; limit++) {
+                List<String> expected = new ArrayList<String>();
+                for (String w : WORDS) {
+                    if (w.startsWith(prefix)) {
+                        expected.add(w);
+                    }
+                }
+                Collections.sort(expected, new Comparator<String>() {
+                    public int compare(String a, String b) {
+                        return a.length() != b.length() ? a.length() - b.length() : a.compareTo(b);
+                    }
+                });
+                expected = expected.subList(0, Math.min(limit, expected.size()));
+
+                Map<String, String> actual = new LinkedHashMap<String, String>();
+                index.complete(prefix, limit, actual);
+                assertEquals(prefix + " / " + limit, expected, new ArrayList<String>(actual.keySet()));
+                for (Map.Entry<String, String> e : actual.entrySet()) {
+                    assertEquals(e.getKey().toUpperCase(), e.getValue());
+                }
+            }
+        }
+    }
+
+    public void testTransliterator() throws Exception {
+        Transliterator t = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA);
+        Map<String, String> names = t.complete("Perer", Transliterate.MALE, 5);
+        assertEquals("perera", names.keySet().iterator().next());
+        for (Map.Entry<String, String> e : names.entrySet()) {
+            assertTrue(e.getKey(), e.getKey().startsWith("perer"));
+            assertEquals(t.translateWord(e.getKey(), Transliterate.MALE), e.getValue());
+        }
+        for (Map.Entry<String, String> e : t.complete("ga", Transliterate.UNKNOWN, 5).entrySet()) {
+            assertEquals(t.translateWord(e.getKey(), Transliterate.UNKNOWN), e.getValue());
+        }
+        assertTrue(t.complete("zorangaxe", Transliterate.MALE, 5).isEmpty());
+    }
+}
@@ -0,0 +1,47 @@
+package com.asankha.translit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class ResultCacheTest extends TestCase {
+
+    public ResultCacheTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(ResultCacheTest.class);
+    }
+
+    public void testStatistics() {
+        ResultCache cache = new ResultCache(1);
+        assertNull(cache.get("kotte", Transliterate.UNKNOWN));
+        cache.put("kotte", Transliterate.UNKNOWN, "කොට්ටෙ");
+        assertEquals("කොට්ටෙ", cache.get("kotte", Transliterate.UNKNOWN));
+        assertNull(cache.get("kotte", Transliterate.MALE));
+
+        cache.put("kotte", Transliterate.MALE, "කොට්ටෙ");
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1.0 / 3, cache.getHitRate(), 0.0001);
+    }
+
+    public void testCachedTransliterator() throws Exception {
+        Transliterator t = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA);
+        Transliterator c = t.withCache(100);
+        assertNull(t.getCache());
+
+        // dictionary hits are not cached
+        assertEquals("පෙරේරා", c.translateWord("perera", Transliterate.MALE));
+        assertEquals(0, c.getCache().size());
+
+        String expected = t.translateWord("asankha", Transliterate.MALE);
+        assertEquals(expected, c.translateWord("asankha", Transliterate.MALE));
+        assertEquals(expected, c.translateWord("ASANKHA", Transliterate.MALE));
+        assertEquals(1, c.getCache().size());
+        assertEquals(1, c.getCache().getHitCount());
+    }
+}
@@ -0,0 +1,43 @@
+package com.asankha.translit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class RuleTrieTest extends TestCase {
+
+    private static final String[] RULES = {
+        "mahathmaya#.*", "m\\.ah.*", "ma.*", "m.*", "m\\.a", "a[bc].*", "#.*"
+    };
+
+    public RuleTrieTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(RuleTrieTest.class);
+    }
+
+    public void testMatchesSameAsRegex() {
+        RuleTrie<String> trie = new RuleTrie<String>(RULES, RULES);
+        String[] inputs = {"mahathmaya#", "m.ah", "m.a", "maha", "abc", "acx", "#x", "m\nx", "", "z"};
+        int[] candidates = new int[trie.size()];
+
+        for (String in : inputs) {
+            for (int from=0; from<=in.length(); from++) {
+                StringBuilder expected = new StringBuilder();
+                for (int i=0; i<RULES.length; i++) {
+                    if (in.substring(from).matches(RULES[i])) {
+                        expected.append(i).append(',');
+                    }
+                }
+                StringBuilder actual = new StringBuilder();
+                int count = trie.match(in, from, candidates);
+                for (int i=0; i<count; i++) {
+                    actual.append(candidates[i]).append(',');
+                }
+                assertEquals(in + " @ " + from, expected.toString(), actual.toString());
+            }
+        }
+    }
+}
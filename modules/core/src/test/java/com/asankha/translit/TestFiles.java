@@ -0,0 +1,45 @@
+package com.asankha.translit;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Creates and removes the temporary mapping directories used by the tests
+ */
+class TestFiles {
+
+    private TestFiles() {}
+
+    /**
+     * Create a new temporary directory holding a single UTF-8 file with the given name and content
+     */
+    static File createDirectory(String name, String content) throws IOException {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "translit-test-" + System.nanoTime());
+        if (!dir.mkdirs()) {
+            throw new IOException("Cannot create the directory : " + dir);
+        }
+        Writer w = new OutputStreamWriter(new FileOutputStream(new File(dir, name)), "UTF-8");
+        try {
+            w.write(content);
+        } finally {
+            w.close();
+        }
+        return dir;
+    }
+
+    /**
+     * Delete a directory created by createDirectory(), along with its files
+     */
+    static void delete(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (int i=0; i<files.length; i++) {
+                files[i].delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,105 @@
+package com.asankha.translit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+
+public class TranslitServerTest extends TestCase {
+
+    private TranslitServer server;
+
+    public TranslitServerTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(TranslitServerTest.class);
+    }
+
+    protected void setUp() throws Exception {
+        server = new TranslitServer(0);
+        server.start();
+    }
+
+    protected void tearDown() {
+        server.stop(0);
+    }
+
+    public void testTranslate() throws Exception {
+        String expected = Transliterate.translateLine("perera, avanka", Transliterate.ENGLISH, Transliterate.TAMIL,
+            Transliterate.FEMALE);
+        assertEquals(expected, request("GET", "/translate?src=en&dst=ta&gender=f&text=perera%2C+avanka", null, 200));
+        assertEquals(expected, request("POST", "/translate?src=en&dst=ta&gender=f", "perera, avanka", 200));
+        request("GET", "/translate?src=en&dst=en&text=x", null, 400);
+        request("GET", "/translate?gender=x&text=x", null, 400);
+    }
+
+    public void testBatch() throws Exception {
+        String a = Transliterate.translateLine("asankha perera", Transliterate.ENGLISH, Transliterate.SINHALA,
+            Transliterate.MALE);
+        String b = Transliterate.translateLine("\"galle\"", Transliterate.ENGLISH, Transliterate.SINHALA,
+            Transliterate.MALE);
+
+        assertEquals(a + "\n\n" + b + "\n", request("POST", "/batch?gender=m", "asankha perera\r\n\n\"galle\"\n", 200));
+        assertEquals("[\"" + a + "\",\"\\\"" + b.substring(1, b.length() - 1) + "\\\"\"]",
+            request("POST", "/batch?gender=m", " [\"asankha perera\", \"\\\"galle\\u0022\"] ", 200));
+        request("POST", "/batch", "[\"x\",]", 400);
+        request("GET", "/batch", null, 405);
+
+        String stats = request("GET", "/stats", null, 200);
+        assertTrue(stats, stats.indexOf("\"requests\":5") != -1);
+        assertTrue(stats, stats.indexOf("\"errors\":2") != -1);
+        assertTrue(stats, stats.indexOf("\"lines\":5") != -1);
+    }
+
+    public void testRequestTooLarge() throws Exception {
+        char[] large = new char[1024 * 1024 + 1];
+        Arrays.fill(large, 'a');
+        request("POST", "/batch", new String(large), 413);
+        request("POST", "/translate", new String(large), 413);
+    }
+
+    public void testComplete() throws Exception {
+        Transliterator t = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA);
+        String perera = t.translateWord("perera", Transliterate.MALE);
+        assertEquals("{\"perera\":\"" + perera + "\"}",
+            request("GET", "/complete?gender=m&prefix=perer&limit=1", null, 200));
+        assertEquals("{}", request("GET", "/complete?prefix=zorangaxe", null, 200));
+        request("GET", "/complete?prefix=a&limit=x", null, 400);
+        request("GET", "/complete?prefix=a&limit=0", null, 400);
+        request("GET", "/complete?prefix=a&limit=-1", null, 400);
+        String clamped = request("GET", "/complete?prefix=&limit=1000000", null, 200);
+        assertEquals(100, t.complete("", Transliterate.UNKNOWN, 100).size());
+        assertEquals(TranslitServer.Json.toStringObject(t.complete("", Transliterate.UNKNOWN, 100)), clamped);
+        request("GET", "/complete", null, 400);
+    }
+
+    private String request(String method, String path, String body, int status) throws Exception {
+        HttpURLConnection c = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+        c.setRequestMethod(method);
+        if (body != null) {
+            c.setDoOutput(true);
+            OutputStream out = c.getOutputStream();
+            out.write(body.getBytes("UTF-8"));
+            out.close();
+        }
+        assertEquals(path, status, c.getResponseCode());
+
+        InputStream in = status == 200 ? c.getInputStream() : c.getErrorStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            bytes.write(buf, 0, n);
+        }
+        in.close();
+        return bytes.toString("UTF-8");
+    }
+}
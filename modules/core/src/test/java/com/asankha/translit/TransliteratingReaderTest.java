@@ -0,0 +1,95 @@
+package com.asankha.translit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.*;
+import java.util.*;
+
+public class TransliteratingReaderTest extends TestCase {
+
+    private static final String[] LINES = {
+        "asankha perera", "Kumarasiri, \"GALLE\" (colombo)", "a", ",", "", " ", "x,", ",y", "# avanka #", "[a] b",
+        "kumari\\chamath", "'", "perera's"
+    };
+
+    public TransliteratingReaderTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(TransliteratingReaderTest.class);
+    }
+
+    public void testSameAsTranslateLine() throws Exception {
+        Transliterator t = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA);
+        Random r = new Random(42);
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        String[] terminators = {"\n", "\r\n", "\r"};
+        for (int i=0; i<2000; i++) {
+            String line = LINES[r.nextInt(LINES.length)] + (r.nextBoolean() ? "" : LINES[r.nextInt(LINES.length)]);
+            String terminator = terminators[r.nextInt(terminators.length)];
+            input.append(line).append(terminator);
+            expected.append(t.translateLine(line, Transliterate.MALE)).append(terminator);
+        }
+        input.append("zorangaxe");
+        expected.append(t.translateLine("zorangaxe", Transliterate.MALE));
+
+        // read and write in pieces of random sizes, so that words are split across them
+        Reader reader = new TransliteratingReader(new StringReader(input.toString()), t, Transliterate.MALE);
+        StringBuilder read = new StringBuilder();
+        char[] buf = new char[64];
+        int n;
+        while ((n = reader.read(buf, 0, 1 + r.nextInt(buf.length))) != -1) {
+            read.append(buf, 0, n);
+        }
+        reader.close();
+        assertEquals(expected.toString(), read.toString());
+
+        StringWriter written = new StringWriter();
+        Writer writer = new TransliteratingWriter(written, t, Transliterate.MALE);
+        for (int i=0; i<input.length(); ) {
+            int len = Math.min(1 + r.nextInt(16), input.length() - i);
+            writer.write(input.substring(i, i + len));
+            i += len;
+        }
+        writer.close();
+        assertEquals(expected.toString(), written.toString());
+    }
+
+    public void testLongWord() throws Exception {
+        Transliterator t = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA);
+        char[] word = new char[StreamTranslator.MAX_WORD_LENGTH * 2];
+        Arrays.fill(word, 'a');
+        String piece = new String(word, 0, StreamTranslator.MAX_WORD_LENGTH);
+
+        StringWriter written = new StringWriter();
+        Writer writer = new TransliteratingWriter(written, t, Transliterate.UNKNOWN);
+        writer.write(word);
+        writer.close();
+        String translated = t.translateWord(piece, Transliterate.UNKNOWN);
+        assertEquals(translated + translated, written.toString());
+
+        // a delimiter before a long word stays in front of it
+        written = new StringWriter();
+        writer = new TransliteratingWriter(written, t, Transliterate.UNKNOWN);
+        writer.write(",");
+        writer.write(word);
+        writer.write(" x");
+        writer.close();
+        assertEquals("," + translated + translated + " " + t.translateWord("x", Transliterate.UNKNOWN),
+            written.toString());
+    }
+
+    public void testIterator() throws Exception {
+        Transliterator t = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.TAMIL);
+        Iterator<String> it = t.translateLines(Arrays.asList(LINES).iterator(), Transliterate.FEMALE);
+        for (String line : LINES) {
+            assertTrue(it.hasNext());
+            assertEquals(t.translateLine(line, Transliterate.FEMALE), it.next());
+        }
+        assertFalse(it.hasNext());
+    }
+}
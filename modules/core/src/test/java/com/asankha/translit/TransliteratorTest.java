@@ -0,0 +1,166 @@
+package com.asankha.translit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class TransliteratorTest extends TestCase {
+
+    public TransliteratorTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(TransliteratorTest.class);
+    }
+
+    public void testNewInstance() throws Exception {
+        Transliterator t = Transliterator.newInstance(Transliterate.ENGLISH, Transliterate.SINHALA);
+        assertEquals("\"පෙරේරා\" අසන්ඛ-චමත්, #පෙරේරා#",
+            t.translateLine("\"Perera\" asankha-chamath, #Perera#", Transliterate.MALE));
+        assertEquals("අවන්කා", t.translateWord("AVANKA", Transliterate.FEMALE));
+
+        Transliterator r = Transliterator.newInstance(Transliterate.SINHALA, Transliterate.ENGLISH);
+        assertEquals(Transliterate.translateWord("අවන්ක", Transliterate.SINHALA, Transliterate.ENGLISH, Transliterate.MALE),
+            r.translateWord("අවන්ක", Transliterate.MALE));
+    }
+
+    public void testTranslateLinesSameAsTranslateLine() throws Exception {
+        Transliterator t = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA);
+        String[] fixed = {"", "a", "#", "a b", "\"Perera\" asankha-chamath, #Perera#", "AVANKA avanka"};
+        String[] lines = new String[2000];
+        for (int i=0; i<lines.length; i++) {
+            lines[i] = i < fixed.length ? fixed[i] : "perera " + Integer.toString(i % 1500, 26) + " kumara";
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            String[] parallel = t.translateLines(lines, Transliterate.MALE, executor);
+            String[] sequential = t.translateLines(lines, Transliterate.MALE);
+            for (int i=0; i<lines.length; i++) {
+                String expected = t.translateLine(lines[i], Transliterate.MALE);
+                assertEquals(lines[i], expected, parallel[i]);
+                assertEquals(lines[i], expected, sequential[i]);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(Arrays.asList("පෙරේරා", ""), Transliterate.translateLines(
+            Arrays.asList("perera", ""), Transliterate.ENGLISH, Transliterate.SINHALA, Transliterate.MALE));
+    }
+
+    public void testTranslateIntoBuffer() throws Exception {
+        Transliterator t = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA);
+        String line = "\"Perera\" asankha-chamath, #Perera#";
+
+        StringBuilder sb = new StringBuilder("> ");
+        t.translateLine(new StringBuilder(line), Transliterate.MALE, sb);
+        t.translateWord(new StringBuilder("AVANKA"), Transliterate.FEMALE, (Appendable) sb);
+        assertEquals("> " + t.translateLine(line, Transliterate.MALE) + "අවන්කා", sb.toString());
+
+        Transliterator cached = t.withCache(10);
+        sb.setLength(0);
+        cached.translateLine("zorangaxe zorangaxe", Transliterate.MALE, sb);
+        assertEquals(t.translateLine("zorangaxe zorangaxe", Transliterate.MALE), sb.toString());
+        assertEquals(1, cached.getCache().getHitCount());
+    }
+
+    public void testTranslateIntoSeveralLanguages() throws Exception {
+        Transliterator si = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA);
+        Transliterator ta = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.TAMIL);
+        Transliterator[] targets = {si, ta.withCache(10), si.withCache(10)};
+        String[] lines = {"", "a", "#", "\"Perera\" asankha-chamath, #Perera#", "zorangaxe kumara zorangaxe", "AVANKA"};
+
+        for (int g=Transliterate.UNKNOWN; g<=Transliterate.FEMALE; g++) {
+            for (String line : lines) {
+                String[] result = Transliterator.translateLine(line, g, targets);
+                assertEquals(line, si.translateLine(line, g), result[0]);
+                assertEquals(line, ta.translateLine(line, g), result[1]);
+                assertEquals(line, si.translateLine(line, g), result[2]);
+                assertEquals(line, ta.translateWord(line, g), Transliterator.translateWord(line, g, targets)[1]);
+            }
+        }
+        assertTrue(targets[1].getCache().getHitCount() > 0);
+
+        assertEquals(Arrays.asList(si.translateLine("perera", Transliterate.MALE),
+            ta.translateLine("perera", Transliterate.MALE)), Arrays.asList(Transliterate.translateLine("perera", Transliterate.ENGLISH,
+                new int[] {Transliterate.SINHALA, Transliterate.TAMIL}, Transliterate.MALE)));
+        try {
+            Transliterator.translateLine("perera", Transliterate.MALE,
+                new Transliterator[] {si, Transliterate.getTransliterator(Transliterate.SINHALA, Transliterate.TAMIL)});
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    public void testInvalidLanguagePair() throws Exception {
+        try {
+            Transliterator.newInstance(Transliterate.TAMIL, Transliterate.TAMIL);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {}
+        assertNull(Transliterate.translateWord("perera", Transliterate.ENGLISH, Transliterate.ENGLISH, Transliterate.MALE));
+    }
+
+    public void testDictionaryFromDirectory() throws Exception {
+        File dir = TestFiles.createDirectory("en-to-si.txt", "Perera,පෙරෙරා,1,1\n");
+
+        try {
+            Transliterator t = Transliterator.newInstance(Transliterate.ENGLISH, Transliterate.SINHALA, dir);
+            assertEquals("පෙරෙරා", t.translateWord("perera", Transliterate.MALE));
+            assertEquals("පෙරේරා", Transliterate.getTransliterator(
+                Transliterate.ENGLISH, Transliterate.SINHALA).translateWord("perera", Transliterate.MALE));
+        } finally {
+            TestFiles.delete(dir);
+        }
+    }
+
+    public void testReload() throws Exception {
+        File dir = TestFiles.createDirectory("en-to-si.txt", "Perera,පෙරෙරා,1,1\n");
+
+        Transliterator before = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA);
+        try {
+            Transliterate.reload(dir);
+            assertEquals("පෙරෙරා", Transliterate.translateWord(
+                "perera", Transliterate.ENGLISH, Transliterate.SINHALA, Transliterate.MALE));
+            // an engine obtained earlier is unaffected by the reload
+            assertEquals("පෙරේරා", before.translateWord("perera", Transliterate.MALE));
+        } finally {
+            Transliterate.reload(null);
+            TestFiles.delete(dir);
+        }
+        assertEquals("පෙරේරා", Transliterate.translateWord(
+            "perera", Transliterate.ENGLISH, Transliterate.SINHALA, Transliterate.MALE));
+    }
+
+    public void testLazyLoading() throws Exception {
+        File dir = TestFiles.createDirectory("phonetic-ta.txt", "not a rule\n");
+
+        try {
+            Engines engines = new Engines(dir, null, 0);
+            assertFalse(engines.isLoaded(Transliterate.ENGLISH, Transliterate.SINHALA));
+            assertEquals("පෙරේරා", engines.get(
+                Transliterate.ENGLISH, Transliterate.SINHALA).translateWord("perera", Transliterate.MALE));
+            assertTrue(engines.isLoaded(Transliterate.ENGLISH, Transliterate.SINHALA));
+            assertFalse(engines.isLoaded(Transliterate.ENGLISH, Transliterate.TAMIL));
+
+            // a failure to load one pair does not affect the others, and is reported on each use
+            for (int i=0; i<2; i++) {
+                try {
+                    engines.get(Transliterate.ENGLISH, Transliterate.TAMIL);
+                    fail("Expected an IOException");
+                } catch (IOException expected) {
+                    assertTrue(expected.getMessage().indexOf("phonetic-ta.txt") != -1);
+                }
+            }
+            assertFalse(engines.isLoaded(Transliterate.ENGLISH, Transliterate.TAMIL));
+            assertNotNull(engines.get(Transliterate.TAMIL, Transliterate.SINHALA));
+        } finally {
+            TestFiles.delete(dir);
+        }
+    }
+}
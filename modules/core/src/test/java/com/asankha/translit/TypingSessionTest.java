@@ -0,0 +1,73 @@
+package com.asankha.translit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.Random;
+
+public class TypingSessionTest extends TestCase {
+
+    private static final String[] PIECES = {
+        "a", "e", "i", "o", "u", "h", "k", "th", "dh", "n", "m", "r", "y", "w", "s", "A", "#", "'", " ", "\n",
+        "asankha", "perera", "mahathmaya", "wimala", "අ", "ස", "්", "அ", "க", "்"
+    };
+
+    public TypingSessionTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(TypingSessionTest.class);
+    }
+
+    public void testSameAsTranslateWord() throws Exception {
+        Random r = new Random(42);
+        for (int src=Transliterate.ENGLISH; src<=Transliterate.TAMIL; src++) {
+            for (int dst=Transliterate.ENGLISH; dst<=Transliterate.TAMIL; dst++) {
+                if (src == dst) {
+                    continue;
+                }
+                Transliterator t = Transliterate.getTransliterator(src, dst);
+                for (int gender=Transliterate.UNKNOWN; gender<=Transliterate.FEMALE; gender++) {
+                    TypingSession session = new TypingSession(t, gender);
+                    assertEquals(t.translateWord("", gender), session.getResult());
+
+                    for (int i=0; i<500; i++) {
+                        String result;
+                        int op = r.nextInt(10);
+                        if (op < 6) {
+                            result = session.append(PIECES[r.nextInt(PIECES.length)]);
+                        } else if (op < 8) {
+                            result = session.delete(r.nextInt(Math.min(3, session.getText().length()) + 1));
+                        } else if (op < 9) {
+                            String text = session.getText();
+                            int at = r.nextInt(text.length() + 1);
+                            result = session.setText(text.substring(0, at) + PIECES[r.nextInt(PIECES.length)] +
+                                text.substring(at));
+                        } else {
+                            result = session.setText(PIECES[r.nextInt(PIECES.length)]);
+                        }
+                        assertEquals(session.getText(), t.translateWord(session.getText(), gender), result);
+                    }
+                }
+            }
+        }
+    }
+
+    public void testTyping() throws Exception {
+        Transliterator t = Transliterate.getTransliterator(Transliterate.ENGLISH, Transliterate.SINHALA);
+        TypingSession session = new TypingSession(t, Transliterate.MALE);
+        String word = "Kumarasiri";
+        for (int i=0; i<word.length(); i++) {
+            assertEquals(t.translateWord(word.substring(0, i + 1), Transliterate.MALE), session.append(word.charAt(i)));
+        }
+        assertEquals(word, session.getText());
+        assertEquals(t.translateWord("kumarasir", Transliterate.MALE), session.delete(1));
+
+        try {
+            session.delete(10);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {}
+    }
+}